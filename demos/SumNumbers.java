@@ -1,5 +1,4 @@
 import edu.wofford.*;
-import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class SumNumbers {
@@ -9,7 +8,7 @@ public class SumNumbers {
         parser.setProgramDescription("Calculates the sum of 5 numbers.");
 
         Argument arg = new Argument("numbers");
-        arg.setType("float");
+        arg.setType("double");
         arg.setDescription("numbers Each value in numbers is a piece of the total sum to be computed.");
         arg.setNumberOfValuesExpected(5);
         parser.setArgument(arg);
@@ -45,6 +44,7 @@ public class SumNumbers {
         parser.setNickname(xmlArg, "-x");
 
         double result = 0;
+        String moreInfo = "no";
         try {
             if (args.length == 0) {
                 String helpMessage = "\n";
@@ -58,22 +58,23 @@ public class SumNumbers {
                 String[] help = { "-h" };
                 parser.setArgumentValues(help);
             } else {
-                parser.setArgumentValues(args);
-                List<String> lengthVals = parser.getValues("numbers");
-                for (int i = 0; i < 5; i++) {
-                    result += Double.parseDouble(lengthVals.get(i));
+                ParserSpec spec = parser.compile();
+                ParseResult parsed = spec.parse(args);
+                for (double value : parsed.getDoubles(spec.key("numbers"))) {
+                    result += value;
                 }
-                if (parser.getValue("--add").equals("true")) {
+                if (parsed.getBoolean(spec.key("--add"))) {
                     result += 5;
-                } else if (parser.getValue("--subtract").equals("true")) {
+                } else if (parsed.getBoolean(spec.key("--subtract"))) {
                     result -= 5;
                 }
-                if (parser.getValue("-x").equals("true")) {
+                if (parsed.getBoolean(spec.key("-x"))) {
                     parser.createXML(true);
                 }
+                moreInfo = parsed.getValue("--moreInfo");
             }
             System.out.println(result);
-            if (parser.getValue("--moreInfo").equals("yes")) {
+            if (moreInfo.equals("yes")) {
                 String[] msgs = { "How are you today?", "Happy Wednesday.",
                         "Only smart people can understand Rick and Morty." };
                 int random = ThreadLocalRandom.current().nextInt(0, msgs.length);
@@ -0,0 +1,77 @@
+import edu.wofford.*;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Compares the start-up cost of reading an XML definition with the StAX reader and with the lightweight reader.
+ * Each run starts a fresh JVM, so the class loading and factory lookup that StAX needs are counted every time, the
+ * way a short-lived command-line tool pays for them.
+ *
+ * Example: java -cp .:../build/libs/argparse-<version>.jar XMLStartupBenchmark ../src/test/resources/testXMLParser.xml
+ */
+public class XMLStartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("child")) {
+            runChild(args[1].equals("lightweight"), args[2]);
+            return;
+        }
+        ArgumentParser parser = new ArgumentParser("XMLStartupBenchmark");
+        parser.setProgramDescription("Times parseXML in fresh JVMs with and without the lightweight reader.");
+        parser.setArgument("file");
+        parser.setArgumentDescription("file", "the XML definition to read");
+        NamedArgument runsArg = new NamedArgument("--runs", "20");
+        runsArg.setType("int");
+        runsArg.setDescription("The number of JVMs started for each reader (20 by default).");
+        parser.setNickname(runsArg, "-r");
+        try {
+            ParserSpec spec = parser.compile();
+            ParseResult parsed = spec.parse(args);
+            String file = parsed.getValue("file");
+            int runs = parsed.getInt(spec.key("--runs"));
+            report("stax", measure(false, file, runs));
+            report("lightweight", measure(true, file, runs));
+        } catch (ArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private static void runChild(boolean lightweight, String file) {
+        long start = System.nanoTime();
+        ArgumentParser parser = new ArgumentParser("child");
+        parser.setLightweightXML(lightweight);
+        parser.parseXML(file);
+        parser.compile();
+        System.out.println(System.nanoTime() - start);
+    }
+
+    private static long[][] measure(boolean lightweight, String file, int runs) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classpath = System.getProperty("java.class.path");
+        long[][] times = new long[2][runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(java, "-cp", classpath, "XMLStartupBenchmark", "child",
+                    lightweight ? "lightweight" : "stax", file).redirectErrorStream(true).start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            String line = reader.readLine();
+            if (process.waitFor() != 0 || line == null) {
+                throw new IllegalStateException("child JVM failed: " + line);
+            }
+            times[0][i] = System.nanoTime() - start;
+            times[1][i] = Long.parseLong(line.trim());
+        }
+        return times;
+    }
+
+    private static void report(String name, long[][] times) {
+        System.out.printf("%-12s process %7.1f ms   parseXML %7.2f ms   (medians of %d runs)%n", name,
+                median(times[0]) / 1e6, median(times[1]) / 1e6, times[0].length);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
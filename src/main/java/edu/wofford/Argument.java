@@ -21,12 +21,20 @@ import java.util.Set;
  */
 public class Argument {
 
+    /** The number of values of an Argument that takes one value or none, written "?". */
+    public static final int OPTIONAL = -1;
+    /** The number of values of an Argument that takes any number of values, written "*". */
+    public static final int ZERO_OR_MORE = -2;
+    /** The number of values of an Argument that takes at least one value, written "+". */
+    public static final int ONE_OR_MORE = -3;
+
     private String name;
     private String description;
     private String type;
     private Set<String> accepted;
     private int numberOfValuesExpected;
     private List<String> multipleValues;
+    private int revision;
 
     /** 
      * Constructs an Argument object which requires the Argument name as a string.
@@ -52,12 +60,27 @@ public class Argument {
     }
 
     /**
-     * Sets the number of values that the Argument is expecting, default is 1.
+     * Sets the number of values that the Argument is expecting, default is 1. Besides a fixed count, n may be
+     * {@link #OPTIONAL}, {@link #ZERO_OR_MORE} or {@link #ONE_OR_MORE}; such an Argument takes values until the next
+     * option or the end of the command line.
      * 
      * @param n an integer representing the number of values expected by the Argument
      */
     public void setNumberOfValuesExpected(int n) {
         numberOfValuesExpected = n;
+        changed();
+    }
+
+    /**
+     * Sets the number of values that the Argument is expecting from its written form: a count such as "3", or "?",
+     * "*" or "+" for {@link #OPTIONAL}, {@link #ZERO_OR_MORE} or {@link #ONE_OR_MORE}.
+     * 
+     * @param nargs the written number of values
+     * @throws NumberFormatException if nargs is neither a count nor one of "?", "*" and "+"
+     */
+    public void setNumberOfValuesExpected(String nargs) {
+        numberOfValuesExpected = parseNumberOfValues(nargs);
+        changed();
     }
 
     /** 
@@ -67,6 +90,7 @@ public class Argument {
      */
     public void setDescription(String description) {
         this.description = description;
+        changed();
     }
 
     /** 
@@ -76,6 +100,7 @@ public class Argument {
      */
     public void setType(String type) {
         this.type = type;
+        changed();
     }
 
     /**
@@ -88,6 +113,7 @@ public class Argument {
         for (int i = 0; i < values.length; i++) {
             accepted.add(values[i]);
         }
+        changed();
     }
 
     /**
@@ -98,6 +124,7 @@ public class Argument {
      */
     public void addAcceptedValue(String value) {
         accepted.add(value);
+        changed();
     }
 
     /** 
@@ -154,6 +181,25 @@ public class Argument {
         return numberOfValuesExpected;
     }
 
+    /**
+     * Returns the number of values that the argument is expecting in its written form, the inverse of
+     * {@link #setNumberOfValuesExpected(String)}.
+     * 
+     * @return a count such as "3", or "?", "*" or "+"
+     */
+    public String getNumberOfValuesExpectedString() {
+        switch (numberOfValuesExpected) {
+        case OPTIONAL:
+            return "?";
+        case ZERO_OR_MORE:
+            return "*";
+        case ONE_OR_MORE:
+            return "+";
+        default:
+            return Integer.toString(numberOfValuesExpected);
+        }
+    }
+
     /**
      * Gets the Argument's accepted values.
      * 
@@ -162,4 +208,34 @@ public class Argument {
     public Set<String> getAcceptedValues() {
         return accepted;
     }
+
+    /**
+     * Gets a count that grows whenever the Argument's definition changes through one of its setters, so that a
+     * parser can tell whether a spec compiled earlier still describes it. Values set by parsing do not count.
+     *
+     * @return the number of changes made to the definition so far
+     */
+    int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Records a change to the Argument's definition.
+     */
+    void changed() {
+        revision++;
+    }
+
+    static int parseNumberOfValues(String nargs) {
+        switch (nargs) {
+        case "?":
+            return OPTIONAL;
+        case "*":
+            return ZERO_OR_MORE;
+        case "+":
+            return ONE_OR_MORE;
+        default:
+            return Integer.parseInt(nargs);
+        }
+    }
 }
@@ -2,9 +2,16 @@ package edu.wofford;
 
 /** 
 * Thrown to indicate that an invalid action has taken place in regards to the arguments within ArgumentParser. 
+* <p>
+* Exceptions thrown while parsing carry a {@link Diagnostic} with the error code, the argument's name, the offending
+* value and the token index. Their message is only built when {@link #getMessage()} is called, and if the parser was
+* told not to capture stack traces (see {@link ArgumentParser#setCaptureStackTraces(boolean)}) creating one costs
+* little more than creating the Diagnostic.
 */
 public class ArgumentException extends RuntimeException {
 
+    private final Diagnostic diagnostic;
+
     /** 
     * Constructs an ArgumentException with the specified detail message.
     *
@@ -12,5 +19,72 @@ public class ArgumentException extends RuntimeException {
     */
     public ArgumentException(String message) {
         super(message);
+        diagnostic = null;
+    }
+
+    /**
+    * Constructs an ArgumentException that reports the diagnostic.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    ArgumentException(Diagnostic diagnostic, boolean stackTrace) {
+        super(null, null, false, stackTrace);
+        this.diagnostic = diagnostic;
+    }
+
+    /**
+    * Gets the detail message, building it from the diagnostic the first time it is needed.
+    *
+    * @return the detail message
+    */
+    @Override
+    public String getMessage() {
+        return diagnostic == null ? super.getMessage() : diagnostic.getMessage();
+    }
+
+    /**
+    * Gets the problem this exception reports.
+    *
+    * @return the Diagnostic, or null if the exception was created with a message only
+    */
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+
+    /**
+    * Gets the kind of problem this exception reports.
+    *
+    * @return the error code, or {@link ErrorCode#UNSPECIFIED} if the exception was created with a message only
+    */
+    public ErrorCode getErrorCode() {
+        return diagnostic == null ? ErrorCode.UNSPECIFIED : diagnostic.getCode();
+    }
+
+    /**
+    * Gets the name of the argument the problem concerns.
+    *
+    * @return the argument's name, or null if it is not known
+    */
+    public String getArgumentName() {
+        return diagnostic == null ? null : diagnostic.getArgumentName();
+    }
+
+    /**
+    * Gets the value or token that caused the problem.
+    *
+    * @return the offending value, or null if it is not known
+    */
+    public String getValue() {
+        return diagnostic == null ? null : diagnostic.getValue();
+    }
+
+    /**
+    * Gets the index of the token where the problem was found.
+    *
+    * @return the token index, or -1 if it is not known
+    */
+    public int getTokenIndex() {
+        return diagnostic == null ? -1 : diagnostic.getTokenIndex();
     }
 }
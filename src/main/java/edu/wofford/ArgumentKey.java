@@ -0,0 +1,87 @@
+package edu.wofford;
+
+/**
+ * ArgumentKey is a handle to one argument of a {@link ParserSpec}, resolved once when it is requested from the spec.
+ * <p>
+ * Reading a value through a key is a plain array access into the {@link ParseResult}; no name lookup is done.
+ * Keys are only valid for results produced by the spec that created them.
+ * <pre>
+ * Example:
+ * {@code
+ * ParserSpec spec = parser.compile();
+ * ArgumentKey<String> length = spec.key("length");
+ * for (String[] args : commandLines) {
+ *     String value = spec.parse(args).get(length);
+ * }
+ * ArgumentKey<Integer> count = spec.key("--count", Integer.class);
+ * }
+ * </pre>
+ *
+ * @param <T> the type of value read through this key
+ */
+public final class ArgumentKey<T> {
+
+    private final ParserSpec spec;
+    private final int ordinal;
+    private final String name;
+    private final Class<T> valueType;
+    private final boolean converted;
+
+    ArgumentKey(ParserSpec spec, int ordinal, String name, Class<T> valueType, boolean converted) {
+        this.spec = spec;
+        this.ordinal = ordinal;
+        this.name = name;
+        this.valueType = valueType;
+        this.converted = converted;
+    }
+
+    /**
+     * Gets the name of the argument this key refers to.
+     *
+     * @return the name of the argument
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the type of value read through this key.
+     *
+     * @return the class of the key's values
+     */
+    public Class<T> getValueType() {
+        return valueType;
+    }
+
+    /**
+     * Gets the spec this key belongs to.
+     *
+     * @return the ParserSpec that created this key
+     */
+    public ParserSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Gets the position of the argument in its spec's argument table.
+     *
+     * @return the argument's ordinal
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Gets whether values read through this key are the converted values rather than the text they were parsed from.
+     *
+     * @return true if the key was requested with {@link ParserSpec#key(String, Class)}
+     */
+    boolean isConverted() {
+        return converted;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
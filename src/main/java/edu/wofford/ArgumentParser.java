@@ -1,5 +1,9 @@
 package edu.wofford;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -83,8 +87,19 @@ public class ArgumentParser {
 	private List<String> namedArgs;
 	private Map<String, Argument> argumentMap;
 	private Map<String, String> shortFormMap;
+	private List<String> flagArgs;
 	private String programName;
 	private String programDescription;
+	private boolean allowAbbreviations;
+	private boolean captureStackTraces;
+	private boolean lightweightXML;
+	private int responseFileDepth;
+	private int directThreshold;
+	private int parallelThreshold;
+	private TypeRegistry types;
+	private List<Constraint> constraints;
+	private ParserSpec spec;
+	private long specRevision;
 
 	/**
 	 * Constructs an ArgumentParser object which requires the program name as a
@@ -98,8 +113,12 @@ public class ArgumentParser {
 		namedArgs = new ArrayList<String>();
 		argumentMap = new HashMap<String, Argument>();
 		shortFormMap = new HashMap<String, String>();
+		flagArgs = new ArrayList<String>();
 		this.programName = programName;
 		programDescription = "";
+		captureStackTraces = true;
+		types = new TypeRegistry();
+		constraints = new ArrayList<Constraint>();
 	}
 
 	// region Gets and Sets
@@ -111,6 +130,7 @@ public class ArgumentParser {
 	 *            the new name of the program as a string
 	 */
 	public void setProgramName(String name) {
+		spec = null;
 		programName = name;
 	}
 
@@ -121,9 +141,186 @@ public class ArgumentParser {
 	 *            the description of the program as a string
 	 */
 	public void setProgramDescription(String description) {
+		spec = null;
 		programDescription = description;
 	}
 
+	/**
+	 * Sets whether a long option may be given as any unambiguous prefix of its
+	 * name, so that "--verb" selects "--verbose". Abbreviations are off by
+	 * default, so an option must be given by its full name.
+	 *
+	 * @param allow
+	 *            true to accept unambiguous prefixes, false to require full names
+	 */
+	public void setAllowAbbreviations(boolean allow) {
+		spec = null;
+		allowAbbreviations = allow;
+	}
+
+	/**
+	 * Sets whether the exceptions thrown for invalid command lines capture a
+	 * stack trace. Stack traces are captured by default; turning them off makes
+	 * rejecting a command line much cheaper for programs that parse many of them
+	 * and only look at the exception's message or error code.
+	 *
+	 * @param capture
+	 *            true to capture stack traces, false to throw exceptions without
+	 *            them
+	 */
+	public void setCaptureStackTraces(boolean capture) {
+		spec = null;
+		captureStackTraces = capture;
+	}
+
+	/**
+	 * Sets whether XML definitions are read with a small built-in reader before
+	 * falling back to the StAX reader of javax.xml.stream. The built-in reader
+	 * handles the plain XML that definitions are written in and avoids loading
+	 * the StAX implementation, which is a noticeable part of the start-up time of
+	 * a short-lived program. A document that uses anything else, such as
+	 * comments, entity references or a DOCTYPE, is read with StAX as usual, so
+	 * the result is the same either way. The built-in reader is off by default.
+	 *
+	 * @param use
+	 *            true to try the built-in reader first, false to always use StAX
+	 */
+	public void setLightweightXML(boolean use) {
+		lightweightXML = use;
+	}
+
+	/**
+	 * Gets whether XML definitions are read with the built-in reader first.
+	 *
+	 * @return true if {@link #setLightweightXML(boolean)} turned it on
+	 */
+	boolean usesLightweightXML() {
+		return lightweightXML;
+	}
+
+	/**
+	 * Sets how deeply "@file" response files may be nested. When the depth is
+	 * at least 1, a value such as "@options.txt" is replaced by the arguments
+	 * stored in that file, which are read one at a time as they are parsed; a
+	 * response file may name further response files until the depth is
+	 * reached. A file that includes itself is reported instead of being read
+	 * again. Response files are off by default, so "@" values are taken
+	 * literally.
+	 *
+	 * @param depth
+	 *            the number of response files that may be open at once, or 0
+	 *            to take "@" values literally
+	 * @throws IllegalArgumentException
+	 *             if the depth is negative
+	 */
+	public void setResponseFileDepth(int depth) {
+		if (depth < 0) {
+			throw new IllegalArgumentException("depth must not be negative");
+		}
+		spec = null;
+		responseFileDepth = depth;
+	}
+
+	/**
+	 * Sets how many values an int, long, float or double argument must expect
+	 * before its values are kept outside the heap. Such an argument packs its
+	 * values into a direct ByteBuffer instead of keeping a String for each of
+	 * them, and they are read back with
+	 * {@link ParseResult#getIntBuffer(ArgumentKey)} and the other buffer
+	 * getters. Only the last value keeps its original text; the others are
+	 * formatted from the number when read as Strings. A variadic argument
+	 * starts on the heap and moves its values off it only once it has
+	 * received that many in a parse. The threshold is 0 by default, which
+	 * keeps every value on the heap.
+	 *
+	 * @param count
+	 *            the smallest number of expected values to keep off the heap,
+	 *            or 0 to keep every value on the heap
+	 * @throws IllegalArgumentException
+	 *             if the count is negative
+	 */
+	public void setDirectStorageThreshold(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count must not be negative");
+		}
+		spec = null;
+		directThreshold = count;
+	}
+
+	/**
+	 * Sets how many values in a row an argument must receive before they are
+	 * checked and converted in parallel on a fork-join pool. Values that come
+	 * from a response file, and values of registered custom types, are always
+	 * checked one by one, since a custom converter may not be safe to share
+	 * between threads. Parallel checking reports exactly the same problems as
+	 * checking one by one, including the index of the first offending value.
+	 * The threshold is 0 by default, which checks every value in turn.
+	 *
+	 * @param count
+	 *            the smallest number of values in a row to check in parallel,
+	 *            or 0 to never check values in parallel
+	 * @throws IllegalArgumentException
+	 *             if the count is negative
+	 */
+	public void setParallelThreshold(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("count must not be negative");
+		}
+		spec = null;
+		parallelThreshold = count;
+	}
+
+	/**
+	 * Registers a converter for a type name, so that arguments whose type is set
+	 * to that name are validated and converted by it. Registering one of the
+	 * built-in names (int, long, float, double, boolean or string) replaces the
+	 * built-in converter. Converters are looked up when the parser is compiled.
+	 *
+	 * @param typeName
+	 *            the name used with {@link #setArgumentType(String, String)}
+	 * @param converter
+	 *            the converter for values of the type
+	 * @throws IllegalArgumentException
+	 *             if the type name is empty or the converter is null
+	 */
+	public void registerType(String typeName, TypeConverter<?> converter) {
+		spec = null;
+		types.register(typeName, converter);
+	}
+
+	/**
+	 * Gets the registry of types known to this parser.
+	 *
+	 * @return the TypeRegistry used when the parser is compiled
+	 */
+	public TypeRegistry getTypeRegistry() {
+		return types;
+	}
+
+	/**
+	 * Adds a constraint on which arguments may or must be given together, such
+	 * as one argument requiring another or a group of which exactly one must be
+	 * given. The arguments a constraint names must be known to the parser when it
+	 * is compiled.
+	 *
+	 * @param constraint
+	 *            the constraint to add
+	 * @see Constraint
+	 */
+	public void addConstraint(Constraint constraint) {
+		spec = null;
+		constraints.add(constraint);
+	}
+
+	/**
+	 * Gets the constraints that have been added to the parser.
+	 *
+	 * @return an unmodifiable list of the parser's constraints
+	 */
+	public List<Constraint> getConstraints() {
+		return Collections.unmodifiableList(constraints);
+	}
+
 	/**
 	 * Sets the names of the arguments. For each name in the array, an argument is
 	 * created. Note the argument <strong>"-h"</strong> is not allowed.
@@ -132,6 +329,7 @@ public class ArgumentParser {
 	 *            an array of names as strings
 	 */
 	public void setArguments(String[] names) {
+		spec = null;
 		for (String name : names) {
 			if (!name.equals("-h")) {
 				positionalArgs.add(name);
@@ -149,6 +347,7 @@ public class ArgumentParser {
 	 *            the desired name of the argument as string
 	 */
 	public void setArgument(String name) {
+		spec = null;
 		if (!name.equals("-h")) {
 			positionalArgs.add(name);
 			Argument arg = new Argument(name);
@@ -165,6 +364,7 @@ public class ArgumentParser {
 	 * @see Argument
 	 */
 	public void setArgument(Argument arg) {
+		spec = null;
 		String name = arg.getName();
 		if (!name.equals("-h")) {
 			if (!name.startsWith("--")) {
@@ -192,6 +392,7 @@ public class ArgumentParser {
 	 *            Argument object.
 	 */
 	public void setNickname(NamedArgument arg, String shortFormNames) {
+		spec = null;
 		argumentMap.put(arg.getName(), arg);
 		namedArgs.add(arg.getName());
 		for (int i = 1; i < shortFormNames.length(); i++) {
@@ -213,6 +414,7 @@ public class ArgumentParser {
 	 *            the description to set
 	 */
 	public void setArgumentDescription(String name, String description) {
+		spec = null;
 		Argument arg = argumentMap.get(name);
 		arg.setDescription(description);
 	}
@@ -227,6 +429,7 @@ public class ArgumentParser {
 	 *            the type to set, options are int, float, boolean, and string
 	 */
 	public void setArgumentType(String name, String typeName) {
+		spec = null;
 		Argument arg = argumentMap.get(name);
 		arg.setType(typeName);
 	}
@@ -243,6 +446,7 @@ public class ArgumentParser {
 	 *            the ArgumentParser.
 	 */
 	public void setFlags(String flag) {
+		spec = null;
 		if (flag.startsWith("-") && !flag.startsWith("--")) {
 			for (int i = 1; i < flag.length(); i++) {
 				String name = "-" + Character.toString(flag.charAt(i));
@@ -250,6 +454,9 @@ public class ArgumentParser {
 					NamedArgument shortFormFlag = new NamedArgument(name, "false");
 					shortFormFlag.setType("boolean");
 					argumentMap.put(name, shortFormFlag);
+					if (!flagArgs.contains(name)) {
+						flagArgs.add(name);
+					}
 				}
 			}
 		}
@@ -325,13 +532,16 @@ public class ArgumentParser {
 	/**
 	 * Parses the values taken from the command line and sets them to their
 	 * respective arguments. If the value "-h" or "--help" is detected, a help
-	 * message will be displayed to the user.
+	 * message will be displayed to the user. The values are parsed by a
+	 * {@link ParserSpec} that is compiled on the first call and kept until the
+	 * parser's definitions change, through the parser's setters or those of its
+	 * Argument objects.
 	 *
 	 * @param values
 	 *            string of values from the command line
 	 * @throws UnrecognizedArgumentException
 	 *             if an argument is provided that the ArgumentParser does not
-	 *             recognize
+	 *             recognize, or an "@file" response file cannot be expanded
 	 * @throws MissingRequiredArgumentException
 	 *             if a required argument's value is not provided
 	 * @throws InvalidTypeException
@@ -342,40 +552,64 @@ public class ArgumentParser {
 	 *             if two provided arguments must not be provided at the same time
 	 */
 	public void setArgumentValues(String[] values) {
-		Queue<String> queue = new ArrayDeque<>();
-		for (String s : values) {
-			queue.add(s);
-		}
-		String msg = makeUsageMessage();
-		int positionalIndex = 0;
-		List<String> encounteredMutex = new ArrayList<String>();
-		while (!queue.isEmpty()) {
-			String arg = queue.remove();
-			if (arg.equals("-h") || arg.equals("--help")) {
-				help();
-			} else if (arg.startsWith("--")) {
-				parseNamed(arg, queue, encounteredMutex);
-			} else if (arg.startsWith("-") && !arg.startsWith("--")) {
-				if (arg.length() > 2) {
-					parseMultipleFlags(arg, msg, encounteredMutex);
-				} else {
-					parseShortform(arg, queue, encounteredMutex);
-				}
-			} else {
-				if (positionalIndex >= positionalArgs.size()) {
-					msg += programName + ".java: error: unrecognized arguments: " + arg;
-					throw new UnrecognizedArgumentException(msg);
-				} else {
-					positionalIndex = parsePositional(positionalIndex, arg, queue);
-				}
-			}
-		}
-		if (positionalIndex < positionalArgs.size()) {
-			msg += programName + ".java: error: the following arguments are required: " + positionalArgs.get(positionalIndex);
-			throw new MissingRequiredArgumentException(msg);
-		}
-		parseRequired(msg);
-		parseMutuallyExclusive(encounteredMutex, msg);
+		ParserSpec spec = compiledSpec();
+		copyValues(spec, spec.parse(values));
+	}
+
+	/**
+	 * Parses the values taken from the command line and sets them to their
+	 * respective arguments, streaming the values of the consumers' arguments
+	 * to them as they are read. An argument that expects a great many values
+	 * can be handled this way without keeping them all; the argument is only
+	 * set to the last value it received.
+	 *
+	 * @param values
+	 *            string of values from the command line
+	 * @param consumers
+	 *            the consumers that receive the values of their arguments
+	 * @throws IllegalArgumentException
+	 *             if a consumer names an argument the parser does not know, or
+	 *             one whose type does not fit the consumer
+	 * @throws ArgumentException
+	 *             for the same problems as {@link #setArgumentValues(String[])}
+	 * @see ValueConsumers
+	 */
+	public void setArgumentValues(String[] values, ValueConsumers consumers) {
+		ParserSpec spec = compiledSpec();
+		copyValues(spec, spec.parse(values, consumers));
+	}
+
+	/**
+	 * Checks the values taken from the command line without setting them to
+	 * their arguments. Unlike {@link #setArgumentValues(String[])}, which stops
+	 * at the first problem, every problem found in a single pass over the values
+	 * is returned.
+	 *
+	 * @param values
+	 *            string of values from the command line
+	 * @return the problems found, in the order setArgumentValues would report
+	 *         them; empty if the values are valid
+	 * @see ParserSpec#tryParseAll(String[])
+	 */
+	public List<Diagnostic> validateArgumentValues(String[] values) {
+		return compiledSpec().tryParseAll(values).getDiagnostics();
+	}
+
+	/**
+	 * Compiles the parser's current argument definitions into an immutable
+	 * ParserSpec. The spec does not change if the parser or its Argument objects
+	 * are modified afterwards, and it can be shared between threads; each call to
+	 * {@link ParserSpec#parse(String[])} returns its own {@link ParseResult}.
+	 *
+	 * @return a new ParserSpec built from the parser's arguments
+	 * @throws IllegalArgumentException
+	 *             if a constraint names an argument the parser does not know
+	 * @see ParserSpec
+	 */
+	public ParserSpec compile() {
+		return new ParserSpec(programName, programDescription, positionalArgs, namedArgs, flagArgs, argumentMap,
+				types.copy(), new ArrayList<Constraint>(constraints), allowAbbreviations,
+				captureStackTraces, responseFileDepth, directThreshold, parallelThreshold);
 	}
 
 	/**
@@ -389,12 +623,76 @@ public class ArgumentParser {
 		XML.parseXML(filename, this);
 	}
 
+	/**
+	 * Reads argument information from an XML file and adds them to the
+	 * ArgumentParser object's known arguments. The file is decoded as its XML
+	 * declaration says, or as UTF-8 if it has none.
+	 *
+	 * @param file
+	 *            the file to read from
+	 */
+	public void parseXML(Path file) {
+		XML.parseXML(file, this);
+	}
+
+	/**
+	 * Reads argument information from a stream of XML and adds them to the
+	 * ArgumentParser object's known arguments. The stream is decoded as its XML
+	 * declaration says, or as UTF-8 if it has none, and is left open.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 */
+	public void parseXML(InputStream in) {
+		XML.parseXML(in, this);
+	}
+
+	/**
+	 * Reads argument information from XML text and adds them to the
+	 * ArgumentParser object's known arguments. The reader is left open.
+	 *
+	 * @param reader
+	 *            the text to read from
+	 */
+	public void parseXML(Reader reader) {
+		XML.parseXML(reader, this);
+	}
+
+	/**
+	 * Reads argument information from an XML resource on the class path, such
+	 * as a definition packaged in the program's own JAR file, and adds them to
+	 * the ArgumentParser object's known arguments.
+	 *
+	 * @param resource
+	 *            the name of the resource, such as "com/example/tool.xml"
+	 */
+	public void parseXMLResource(String resource) {
+		XML.parseXMLResource(resource, this);
+	}
+
+	/**
+	 * Reads argument information from an XML file and adds them to the
+	 * ArgumentParser object's known arguments. A compact binary copy of the
+	 * definitions is kept in the cache directory, keyed by the file's path, size,
+	 * modification time and checksum, and is memory-mapped instead of reading the
+	 * XML on later calls until the file changes.
+	 *
+	 * @param filename
+	 *            the name of the file to read from
+	 * @param cacheDirectory
+	 *            the directory in which cached definitions are kept
+	 */
+	public void parseXML(String filename, Path cacheDirectory) {
+		XML.parseXML(filename, cacheDirectory, this);
+	}
+
 	/**
 	 * Creates a string that contains all of the parser's argument information,
 	 * formatted as XML.
 	 *
 	 * @param createFile if true, XML string is written to a newly created file in
-	 * 								   the current directory
+	 * 								   the current directory, named after the current time and
+	 * 								   never shared with another export
 	 * @return string of parser's argument information formatted as XML
 	 */
 	public String createXML(boolean createFile) {
@@ -407,195 +705,64 @@ public class ArgumentParser {
 	*
 	* @param createFile if true, XML string is written to a newly created file in
 	* 									the current directory
-	* @param keepTemp   if true, the program will create the file as tmp.xml
-	*										instead of giving it a unique filename
+	* @param keepTemp   if true, the program will create the file as
+	*										stripped_tmp.xml instead of giving it a unique filename
 	* @return string of parser's argument information formatted as XML
 	*/
 	public String createXML(boolean createFile, boolean keepTemp) {
 		return XML.createXML(createFile, keepTemp, positionalArgs, namedArgs, argumentMap);
 	}
 
-	// region Private Methods
-	private void parseNamed(String arg, Queue<String> queue, List<String> encounteredMutex) {
-		if (argumentMap.containsKey(arg)) {
-			Argument current = argumentMap.get(arg);
-			if (current.getType().equals("boolean")) {
-				checkAndSet(current, "true");
-			} else {
-				String value = queue.remove();
-				checkAndSet(current, value);
-			}
-			checkForMutexEncounter(current, encounteredMutex);
-		}
-	}
-
-	private void parseMultipleFlags(String arg, String msg, List<String> mutex) {
-		for (int i = 1; i < arg.length(); i++) {
-			String name = "-" + Character.toString(arg.charAt(i));
-			if (argumentMap.containsKey(name)) {
-				checkAndSet(argumentMap.get(name), "true");
-				checkForMutexEncounter(argumentMap.get(name), mutex);
-			} else if (shortFormMap.containsKey(name)) {
-				checkAndSet(argumentMap.get(shortFormMap.get(name)), "true");
-				checkForMutexEncounter(argumentMap.get(shortFormMap.get(name)), mutex);
-			} else {
-				msg += programName + ".java: error: unrecognized flag: " + name;
-				throw new UnrecognizedArgumentException(msg);
-			}
-		}
-	}
-
-	private void parseShortform(String arg, Queue<String> queue, List<String> encounteredMutex) {
-		if (argumentMap.containsKey(arg)) {
-			Argument flag = argumentMap.get(arg);
-			checkAndSet(flag, "true");
-		} else if (shortFormMap.containsKey(arg)) {
-			String longForm = argumentMap.get(shortFormMap.get(arg)).getName();
-			parseNamed(longForm, queue, encounteredMutex);
-		}
-	}
-
-	private int parsePositional(int positionalIndex, String arg, Queue<String> queue) {
-		String posName = positionalArgs.get(positionalIndex);
-		positionalIndex++;
-		Argument current = argumentMap.get(posName);
-		int n = current.getNumberOfValuesExpected();
-		checkAndSet(current, arg, n, queue);
-		return positionalIndex;
-	}
-
-	private void help() {
-		String message = makeUsageMessage();
-		String decrArgs = "positional arguments:\n";
-		message += programDescription + "\n";
-		for (String name : positionalArgs) {
-			Argument arg = argumentMap.get(name);
-			decrArgs += name + " " + arg.getDescription() + "\n";
-		}
-		for (String name : namedArgs) {
-			Argument arg = argumentMap.get(name);
-			decrArgs += name + " " + arg.getDescription() + "\n";
-		}
-		message += decrArgs.trim();
-		throw new HelpException(message);
-	}
-
-	private String makeString(List<String> list) {
-		String result = "";
-		for (String item : list) {
-			result += item + " ";
-		}
-		return result.trim();
-	}
-
-	private String makeUsageMessage() {
-		return "usage: java " + programName + " " + makeString(positionalArgs) + "\n";
-	}
-
-	private void checkAndSet(Argument current, String argValue, int valuesCount, Queue<String> remainingValues) {
-		while (valuesCount > 0) {
-			checkAndSet(current, argValue);
-			valuesCount--;
-			if (valuesCount > 0) {
-				try {
-					argValue = remainingValues.remove();
-				} catch (NoSuchElementException e) {
-					String msg = makeUsageMessage();
-					msg += programName + ".java: error: argument " + current.getName() + " requires "
-							+ current.getNumberOfValuesExpected() + " values";
-					throw new NotEnoughValuesException(msg);
-				}
-			}
-		}
-	}
-
-	private void checkAndSet(Argument current, String value) {
-		Set<String> accepted = current.getAcceptedValues();
-		if (!accepted.isEmpty()) {
-			if (!accepted.contains(value)) {
-				String msg = makeUsageMessage();
-				msg += programName + ".java: error: argument " + current.getName() + ": unaccepted value: " + value;
-				throw new UnacceptedValueException(msg);
-			}
-		}
-		if (legitimateValue(current.getType(), value)) {
-			current.setValue(value);
-		} else {
-			String msg = makeUsageMessage();
-			msg += programName + ".java: error: argument " + current.getName() + ": invalid " + current.getType() + " value: "
-					+ value;
-			throw new InvalidTypeException(msg);
-		}
+	/**
+	 * Writes all of the parser's argument information to a stream as indented
+	 * XML, encoded as UTF-8, in a single pass. The stream is flushed but not
+	 * closed.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 */
+	public void writeXML(OutputStream out) {
+		XML.writeXML(out, positionalArgs, namedArgs, argumentMap);
 	}
 
-	private boolean legitimateValue(String typeName, String value) {
-		try {
-			if (typeName.equals("int")) {
-				Integer.valueOf(value);
-			} else if (typeName.equals("float")) {
-				Float.valueOf(value);
-			} else if (typeName.equals("boolean")) {
-				Boolean.valueOf(value);
-			} else if (typeName.equals("string")) {
-				String.valueOf(value);
-			}
-		} catch (Exception ex) {
-			return false;
-		}
-		return true;
+	/**
+	 * Writes all of the parser's argument information to a file as indented
+	 * XML, encoded as UTF-8. The file is replaced atomically, so a program
+	 * reading it never sees a partly written document, and any number of
+	 * exports may run at once on different threads.
+	 *
+	 * @param file
+	 *            the file to write
+	 */
+	public void writeXML(Path file) {
+		XML.writeXML(file, positionalArgs, namedArgs, argumentMap);
 	}
 
-	private String checkMutuallyExclusiveNamedArgs(List<String> mutuallyExclusiveArgs,
-			NamedArgument mutuallyExclusiveArg) {
-		String retVal = "";
-		for (String argName : mutuallyExclusiveArgs) {
-			NamedArgument arg = (NamedArgument) argumentMap.get(argName);
-			if (mutuallyExclusiveArg.isMutuallyExclusive(argName)
-					|| arg.isMutuallyExclusive(mutuallyExclusiveArg.getName())) {
-				return argName;
-			}
-		}
-		return retVal;
-	}
-
-	private void parseMutuallyExclusive(List<String> encounteredMutuallyExclusiveNamedArgs, String msg) {
-		List<String> mutuallyExclusiveNamedArgs = new ArrayList<String>();
-		for (String name : encounteredMutuallyExclusiveNamedArgs) {
-			NamedArgument arg = (NamedArgument) argumentMap.get(name);
-			if (arg.hasMutualExclusiveArgs()) {
-				if (mutuallyExclusiveNamedArgs.size() == 0) {
-					mutuallyExclusiveNamedArgs.add(arg.getName());
-				} else {
-					String mutuallyExclusiveArgConflict = checkMutuallyExclusiveNamedArgs(mutuallyExclusiveNamedArgs, arg);
-					if (!mutuallyExclusiveArgConflict.equals("")) {
-						msg += programName + ".java: error: the following arguments are mutually exclusive: " + name + " and "
-								+ mutuallyExclusiveArgConflict;
-						throw new MutuallyExclusiveArgumentException(msg);
-					}
-				}
-			}
+	// region Private Methods
+	private ParserSpec compiledSpec() {
+		long revision = definitionRevision();
+		if (spec == null || revision != specRevision) {
+			spec = compile();
+			specRevision = revision;
 		}
+		return spec;
 	}
 
-	private void parseRequired(String msg) {
-		for (String name : namedArgs) {
-			NamedArgument arg = (NamedArgument) argumentMap.get(name);
-			List<String> values = arg.getMultipleValues();
-			if (arg.isRequired() && values.isEmpty()) {
-				msg += programName + ".java: error: the following arguments are required: " + name;
-				throw new MissingRequiredArgumentException(msg);
-			}
+	private long definitionRevision() {
+		long revision = types.getRevision();
+		for (Argument arg : argumentMap.values()) {
+			revision += arg.getRevision();
 		}
+		return revision;
 	}
 
-	private void checkForMutexEncounter(Argument current, List<String> encounteredMutuallyExclusiveNamedArgs) {
-		if (namedArgs.contains(current.getName())) {
-			NamedArgument currentNamedArgument = (NamedArgument) current;
-			if (currentNamedArgument.hasMutualExclusiveArgs()) {
-				encounteredMutuallyExclusiveNamedArgs.add(currentNamedArgument.getName());
+	private void copyValues(ParserSpec spec, ParseResult result) {
+		for (int i = 0; i < spec.getArgumentCount(); i++) {
+			Argument arg = argumentMap.get(spec.getArgument(i).name);
+			for (String value : result.getProvided(i)) {
+				arg.setValue(value);
 			}
 		}
 	}
 	// endregion
-
 }
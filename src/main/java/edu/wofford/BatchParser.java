@@ -0,0 +1,262 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * BatchParser parses many command lines against one {@link ParserSpec}, spreading the work over a
+ * {@link ForkJoinPool}.
+ * <p>
+ * Command lines are read from an Iterator or a Stream in batches. While one batch is being parsed by the pool, the
+ * calling thread reads the next one, so no more than two batches are held in memory at a time however many command
+ * lines there are. Each command line is parsed with {@link ParserSpec#tryParse(String[])} (or
+ * {@link ParserSpec#tryParseAll(String[])}), so invalid lines cost no more than valid ones and never throw.
+ * <p>
+ * Results are handed to a {@link ResultSink} on the calling thread, in the same order as the command lines were read,
+ * so the sink does not need to be thread-safe.
+ * <pre>
+ * Example:
+ * {@code
+ * BatchParser batch = new BatchParser(parser.compile());
+ * batch.parse(manifest.iterator(), (index, values, result) -> {
+ *     if (!result.isValid()) {
+ *         report(index, result.getDiagnostics());
+ *     }
+ * });
+ * }
+ * </pre>
+ */
+public final class BatchParser {
+
+    /** The number of command lines read and parsed together when no batch size is given. */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private final ParserSpec spec;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final boolean collectAll;
+
+    /**
+     * ResultSink receives the result of each command line parsed by a BatchParser.
+     */
+    public interface ResultSink {
+
+        /**
+         * Receives the result of one command line.
+         *
+         * @param index  the position of the command line in the input, starting at 0
+         * @param values the command line that was parsed
+         * @param result the result of parsing it; check {@link ParseResult#isValid()} before reading values
+         */
+        void accept(long index, String[] values, ParseResult result);
+    }
+
+    /**
+     * Creates a BatchParser that runs on the common fork-join pool and stops at the first problem in each command
+     * line.
+     *
+     * @param spec the spec every command line is parsed against
+     */
+    public BatchParser(ParserSpec spec) {
+        this(spec, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE, false);
+    }
+
+    /**
+     * Creates a BatchParser.
+     *
+     * @param spec       the spec every command line is parsed against
+     * @param pool       the pool that parses the command lines
+     * @param batchSize  the number of command lines read and parsed together
+     * @param collectAll true to report every problem in each command line, false to stop at the first
+     * @throws IllegalArgumentException if the batch size is less than 1
+     */
+    public BatchParser(ParserSpec spec, ForkJoinPool pool, int batchSize, boolean collectAll) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be at least 1");
+        }
+        this.spec = spec;
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.collectAll = collectAll;
+    }
+
+    /**
+     * Parses every command line from the iterator and hands each result to the sink, in input order, on the calling
+     * thread.
+     *
+     * @param lines the command lines to parse
+     * @param sink  the sink that receives the results
+     * @return the number of command lines parsed
+     */
+    public long parse(Iterator<String[]> lines, ResultSink sink) {
+        long index = 0;
+        String[][] current = readBatch(lines);
+        if (current.length == 0) {
+            return 0;
+        }
+        ParseResult[] results = new ParseResult[current.length];
+        ForkJoinTask<Void> running = pool.submit(new ParseTask(current, results, 0, current.length));
+        while (true) {
+            String[][] next = readBatch(lines);
+            running.join();
+            for (int i = 0; i < current.length; i++) {
+                sink.accept(index++, current[i], results[i]);
+            }
+            if (next.length == 0) {
+                return index;
+            }
+            current = next;
+            results = new ParseResult[current.length];
+            running = pool.submit(new ParseTask(current, results, 0, current.length));
+        }
+    }
+
+    /**
+     * Parses every command line from the stream and hands each result to the sink, in the stream's encounter order,
+     * on the calling thread.
+     *
+     * @param lines the command lines to parse
+     * @param sink  the sink that receives the results
+     * @return the number of command lines parsed
+     */
+    public long parse(Stream<String[]> lines, ResultSink sink) {
+        return parse(lines.iterator(), sink);
+    }
+
+    /**
+     * Parses every command line of a manifest file, read with a {@link ManifestReader}, and hands each result to the
+     * sink, in file order, on the calling thread. The file is read a window at a time, so it may be larger than the
+     * heap.
+     *
+     * @param manifest the file of command lines, one per line
+     * @param sink     the sink that receives the results
+     * @return the number of command lines parsed
+     * @throws IOException if the file cannot be opened or read; an exception thrown by the sink is passed on as it is
+     */
+    public long parse(Path manifest, ResultSink sink) throws IOException {
+        try (ManifestReader reader = new ManifestReader(manifest)) {
+            return parse(new ManifestLines(reader), sink);
+        } catch (ReadFailure e) {
+            throw e.failure;
+        }
+    }
+
+    /**
+     * Parses every command line from the iterator and returns the results in input order. Every result is kept, so
+     * for very large inputs {@link #parse(Iterator, ResultSink)} should be used instead.
+     *
+     * @param lines the command lines to parse
+     * @return the results, one for each command line
+     */
+    public List<ParseResult> parseAll(Iterator<String[]> lines) {
+        final List<ParseResult> results = new ArrayList<ParseResult>();
+        parse(lines, new ResultSink() {
+            public void accept(long index, String[] values, ParseResult result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Parses every command line from the stream and returns the results in encounter order. Every result is kept, so
+     * for very large inputs {@link #parse(Stream, ResultSink)} should be used instead.
+     *
+     * @param lines the command lines to parse
+     * @return the results, one for each command line
+     */
+    public List<ParseResult> parseAll(Stream<String[]> lines) {
+        return parseAll(lines.iterator());
+    }
+
+    // region Private Methods
+    private String[][] readBatch(Iterator<String[]> lines) {
+        List<String[]> batch = new ArrayList<String[]>(batchSize);
+        while (batch.size() < batchSize && lines.hasNext()) {
+            batch.add(lines.next());
+        }
+        return batch.toArray(new String[batch.size()][]);
+    }
+
+    /**
+     * ManifestLines passes on the command lines of a manifest, marking the I/O errors raised while reading it so that
+     * they can be told apart from those thrown by a sink.
+     */
+    private static final class ManifestLines implements Iterator<String[]> {
+        private final ManifestReader reader;
+
+        ManifestLines(ManifestReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return reader.hasNext();
+            } catch (UncheckedIOException e) {
+                throw new ReadFailure(e.getCause());
+            }
+        }
+
+        @Override
+        public String[] next() {
+            try {
+                return reader.next();
+            } catch (UncheckedIOException e) {
+                throw new ReadFailure(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * ReadFailure carries an I/O error of a manifest out of {@link #parse(Iterator, ResultSink)}. It is always caught
+     * and unwrapped, so it carries no stack trace.
+     */
+    private static final class ReadFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final IOException failure;
+
+        ReadFailure(IOException failure) {
+            super(failure.getMessage(), failure, false, false);
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * ParseTask parses a range of a batch, splitting it in half until the range is small enough to parse directly.
+     */
+    private final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[][] lines;
+        private final ParseResult[] results;
+        private final int start;
+        private final int end;
+
+        ParseTask(String[][] lines, ParseResult[] results, int start, int end) {
+            this.lines = lines;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= SPLIT_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    results[i] = collectAll ? spec.tryParseAll(lines[i]) : spec.tryParse(lines[i]);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new ParseTask(lines, results, start, middle), new ParseTask(lines, results, middle, end));
+        }
+    }
+    // endregion
+}
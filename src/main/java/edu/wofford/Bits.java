@@ -0,0 +1,112 @@
+package edu.wofford;
+
+/**
+ * Bits holds the operations on the fixed-size bitsets a {@link ParserSpec} uses to record which arguments were seen
+ * and which arguments are related to each other.
+ * <p>
+ * A bitset is a plain long[] with one bit per argument ordinal, sized by {@link #words(int)}. Every set of arguments
+ * in a spec has the same length, so checking two sets against each other is a word-by-word AND.
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    /**
+     * Creates an empty bitset large enough for the given number of ordinals.
+     *
+     * @param size the number of ordinals
+     * @return a new bitset with every bit clear
+     */
+    static long[] words(int size) {
+        return new long[(size + 63) >>> 6];
+    }
+
+    static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets whether the two bitsets have any bit in common.
+     *
+     * @param a a bitset
+     * @param b a bitset of the same length
+     * @return true if some bit is set in both
+     */
+    static boolean intersects(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if ((a[i] & b[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the lowest bit at or after the given index that is set in the first bitset but not in the second.
+     *
+     * @param a     a bitset
+     * @param b     a bitset of the same length
+     * @param index the index to start from
+     * @return the index of the lowest such bit of a that is clear in b, or -1 if there is none
+     */
+    static int nextAndNot(long[] a, long[] b, int index) {
+        int i = index >>> 6;
+        if (i >= a.length) {
+            return -1;
+        }
+        long word = a[i] & ~b[i] & (-1L << index);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == a.length) {
+                return -1;
+            }
+            word = a[i] & ~b[i];
+        }
+    }
+
+    /**
+     * Counts the bits set in both bitsets.
+     *
+     * @param a a bitset
+     * @param b a bitset of the same length
+     * @return the number of bits set in both
+     */
+    static int countAnd(long[] a, long[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Long.bitCount(a[i] & b[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the index of the next set bit at or after the given index.
+     *
+     * @param bits  a bitset
+     * @param index the index to start from
+     * @return the index of the next set bit, or -1 if there is none
+     */
+    static int nextSetBit(long[] bits, int index) {
+        int i = index >>> 6;
+        if (i >= bits.length) {
+            return -1;
+        }
+        long word = bits[i] & (-1L << index);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == bits.length) {
+                return -1;
+            }
+            word = bits[i];
+        }
+    }
+}
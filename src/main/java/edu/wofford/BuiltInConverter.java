@@ -0,0 +1,227 @@
+package edu.wofford;
+
+/**
+ * BuiltInConverter is the form every converter takes inside a compiled {@link ParserSpec}.
+ * <p>
+ * Besides converting to an object, a BuiltInConverter can validate a value and store it straight into a
+ * {@link ValueColumn}, which for the primitive types means no boxing and no exceptions; numbers are parsed by
+ * {@link NumberParser}. The built-in types (int, long, float, double, boolean and string) are implemented here, and
+ * converters registered by the application are wrapped in a {@link Custom} converter.
+ *
+ * @param <T> the type of the converted values
+ */
+abstract class BuiltInConverter<T> implements TypeConverter<T> {
+
+    static final BuiltInConverter<String> STRING = new StringConverter();
+    static final BuiltInConverter<Integer> INT = new IntConverter();
+    static final BuiltInConverter<Long> LONG = new LongConverter();
+    static final BuiltInConverter<Float> FLOAT = new FloatConverter();
+    static final BuiltInConverter<Double> DOUBLE = new DoubleConverter();
+    static final BuiltInConverter<Boolean> BOOLEAN = new BooleanConverter();
+
+    /**
+     * Gets the kind of ValueColumn this converter stores into.
+     *
+     * @return one of the ValueColumn kinds
+     */
+    abstract int kind();
+
+    /**
+     * Validates and converts the value, adding it to the column if it is valid.
+     *
+     * @param value  the text of the value
+     * @param column the column to add the converted value to
+     * @return true if the value was valid and was added, false otherwise
+     */
+    abstract boolean store(String value, ValueColumn column);
+
+    /**
+     * Wraps a converter so it can be used by a compiled spec. Built-in converters are returned as they are.
+     *
+     * @param converter the converter to wrap
+     * @return a BuiltInConverter that converts the same way
+     */
+    static BuiltInConverter<?> wrap(TypeConverter<?> converter) {
+        if (converter instanceof BuiltInConverter) {
+            return (BuiltInConverter<?>) converter;
+        }
+        return new Custom<Object>(converter);
+    }
+
+    private static boolean isFloatingPoint(String value) {
+        return NumberParser.isFloatingPoint(value, 0, value.length());
+    }
+
+    // region Converters
+    private static final class StringConverter extends BuiltInConverter<String> {
+        public Class<String> getValueType() {
+            return String.class;
+        }
+
+        public String convert(String value) {
+            return value;
+        }
+
+        int kind() {
+            return ValueColumn.STRING;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            column.add(value);
+            return true;
+        }
+    }
+
+    private static final class IntConverter extends BuiltInConverter<Integer> {
+        public Class<Integer> getValueType() {
+            return Integer.class;
+        }
+
+        public Integer convert(String value) {
+            long result = NumberParser.parseInteger(value, 0, value.length(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            return result == NumberParser.INVALID ? null : Integer.valueOf((int) result);
+        }
+
+        int kind() {
+            return ValueColumn.INT;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            long result = NumberParser.parseInteger(value, 0, value.length(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if (result == NumberParser.INVALID) {
+                return false;
+            }
+            column.addInt((int) result, value);
+            return true;
+        }
+    }
+
+    private static final class LongConverter extends BuiltInConverter<Long> {
+        public Class<Long> getValueType() {
+            return Long.class;
+        }
+
+        public Long convert(String value) {
+            long result = parseLong(value);
+            return isInvalid(result, value) ? null : Long.valueOf(result);
+        }
+
+        int kind() {
+            return ValueColumn.LONG;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            long result = parseLong(value);
+            if (isInvalid(result, value)) {
+                return false;
+            }
+            column.addLong(result, value);
+            return true;
+        }
+
+        private static long parseLong(String value) {
+            return NumberParser.parseInteger(value, 0, value.length(), Long.MIN_VALUE + 1, Long.MAX_VALUE);
+        }
+
+        private static boolean isInvalid(long result, String value) {
+            return result == NumberParser.INVALID && !NumberParser.isLongMinValue(value, 0, value.length());
+        }
+    }
+
+    private static final class FloatConverter extends BuiltInConverter<Float> {
+        public Class<Float> getValueType() {
+            return Float.class;
+        }
+
+        public Float convert(String value) {
+            return isFloatingPoint(value) ? Float.valueOf(NumberParser.parseFloat(value, 0, value.length())) : null;
+        }
+
+        int kind() {
+            return ValueColumn.FLOAT;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            if (!isFloatingPoint(value)) {
+                return false;
+            }
+            column.addFloat(NumberParser.parseFloat(value, 0, value.length()), value);
+            return true;
+        }
+    }
+
+    private static final class DoubleConverter extends BuiltInConverter<Double> {
+        public Class<Double> getValueType() {
+            return Double.class;
+        }
+
+        public Double convert(String value) {
+            return isFloatingPoint(value) ? Double.valueOf(NumberParser.parseDouble(value, 0, value.length())) : null;
+        }
+
+        int kind() {
+            return ValueColumn.DOUBLE;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            if (!isFloatingPoint(value)) {
+                return false;
+            }
+            column.addDouble(NumberParser.parseDouble(value, 0, value.length()), value);
+            return true;
+        }
+    }
+
+    private static final class BooleanConverter extends BuiltInConverter<Boolean> {
+        public Class<Boolean> getValueType() {
+            return Boolean.class;
+        }
+
+        public Boolean convert(String value) {
+            return Boolean.valueOf(value);
+        }
+
+        int kind() {
+            return ValueColumn.BOOLEAN;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            column.addBoolean(Boolean.parseBoolean(value), value);
+            return true;
+        }
+    }
+
+    /**
+     * Custom adapts a converter registered by the application.
+     */
+    static final class Custom<T> extends BuiltInConverter<T> {
+        private final TypeConverter<T> converter;
+
+        @SuppressWarnings("unchecked")
+        Custom(TypeConverter<?> converter) {
+            this.converter = (TypeConverter<T>) converter;
+        }
+
+        public Class<T> getValueType() {
+            return converter.getValueType();
+        }
+
+        public T convert(String value) {
+            return converter.convert(value);
+        }
+
+        int kind() {
+            return ValueColumn.OBJECT;
+        }
+
+        boolean store(String value, ValueColumn column) {
+            T converted = converter.convert(value);
+            if (converted == null) {
+                return false;
+            }
+            column.addObject(converted, value);
+            return true;
+        }
+    }
+    // endregion
+}
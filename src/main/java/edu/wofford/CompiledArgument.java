@@ -0,0 +1,110 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * CompiledArgument is the immutable snapshot of an {@link Argument} that a {@link ParserSpec} is built from.
+ * <p>
+ * Every CompiledArgument has an ordinal, which is its position in the spec's argument table. Positional arguments
+ * come first (in the order they were set), followed by named arguments and then short-form flags.
+ */
+final class CompiledArgument {
+
+    final int ordinal;
+    final String name;
+    final String description;
+    final String type;
+    final BuiltInConverter<?> converter;
+    final int kind;
+    final Set<String> accepted;
+    final int numberOfValuesExpected;
+    final boolean named;
+    final boolean required;
+    final String defaultValue;
+    final String nicknames;
+    final Set<String> mutexArgs;
+    final ValueColumn defaults;
+    final boolean direct;
+    final int spillAt;
+
+    /**
+     * Copies the definition of the given Argument.
+     *
+     * @param ordinal   the position of the argument in the spec's argument table
+     * @param arg       the Argument to copy
+     * @param converter the converter resolved for the argument's type
+     * @param named     true if the argument is matched by name rather than by position
+     * @param threshold the number of expected values from which int, long, float and double values are kept in a
+     *                  direct buffer, or, for a variadic argument, the number of values received from which they move
+     *                  there; 0 keeps them on the heap
+     */
+    CompiledArgument(int ordinal, Argument arg, BuiltInConverter<?> converter, boolean named, int threshold) {
+        this.ordinal = ordinal;
+        this.name = arg.getName();
+        this.description = arg.getDescription();
+        this.type = arg.getType();
+        this.converter = converter;
+        this.kind = converter.kind();
+        this.accepted = Collections.unmodifiableSet(new HashSet<String>(arg.getAcceptedValues()));
+        this.numberOfValuesExpected = arg.getNumberOfValuesExpected();
+        this.named = named;
+        if (arg instanceof NamedArgument) {
+            NamedArgument namedArg = (NamedArgument) arg;
+            this.required = namedArg.isRequired();
+            this.defaultValue = namedArg.isRequired() ? null : namedArg.getDefault();
+            this.nicknames = namedArg.getNicknames().substring(1);
+            this.mutexArgs = Collections.unmodifiableSet(new HashSet<String>(namedArg.getMutexArgs()));
+        } else {
+            this.required = false;
+            this.defaultValue = null;
+            this.nicknames = "";
+            this.mutexArgs = Collections.emptySet();
+        }
+        this.defaults = defaultValue == null ? null : convertDefault(converter, defaultValue);
+        boolean numeric = kind == ValueColumn.INT || kind == ValueColumn.LONG || kind == ValueColumn.FLOAT
+                || kind == ValueColumn.DOUBLE;
+        this.direct = numeric && threshold > 0 && numberOfValuesExpected >= threshold;
+        this.spillAt = numeric && isVariadic() ? threshold : 0;
+    }
+
+    /**
+     * Gets whether this argument and the given one may not both be provided. Only named arguments that declare
+     * mutually exclusive arguments of their own take part, and the relationship holds if either one lists the other.
+     *
+     * @param other the other compiled argument
+     * @return true if the two arguments are mutually exclusive
+     */
+    boolean isMutuallyExclusive(CompiledArgument other) {
+        if (!named || !other.named || mutexArgs.isEmpty() || other.mutexArgs.isEmpty()) {
+            return false;
+        }
+        return mutexArgs.contains(other.name) || other.mutexArgs.contains(name);
+    }
+
+    /**
+     * Gets whether this argument takes a variable number of values, set with {@link Argument#OPTIONAL},
+     * {@link Argument#ZERO_OR_MORE} or {@link Argument#ONE_OR_MORE}.
+     *
+     * @return true if the argument takes values until the next option
+     */
+    boolean isVariadic() {
+        return numberOfValuesExpected < 0;
+    }
+
+    /**
+     * Gets the fewest values this argument must be given when it appears, or, for a positional argument, at all.
+     *
+     * @return the expected count, 1 for {@link Argument#ONE_OR_MORE}, or 0 for the other variadic counts
+     */
+    int minimumValues() {
+        if (!isVariadic()) {
+            return numberOfValuesExpected;
+        }
+        return numberOfValuesExpected == Argument.ONE_OR_MORE ? 1 : 0;
+    }
+
+    private static ValueColumn convertDefault(BuiltInConverter<?> converter, String value) {
+        ValueColumn column = new ValueColumn(converter.kind(), 1);
+        return converter.store(value, column) ? column : null;
+    }
+}
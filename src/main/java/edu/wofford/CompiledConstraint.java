@@ -0,0 +1,53 @@
+package edu.wofford;
+
+/**
+ * CompiledConstraint is a {@link Constraint} resolved against the arguments of a {@link ParserSpec}.
+ * <p>
+ * The constraint's arguments become a bitmask over the spec's ordinals, so checking it against the arguments seen
+ * during a parse is a word-by-word AND and a bit count, whatever the number of arguments involved.
+ */
+final class CompiledConstraint {
+
+    final Constraint source;
+    final int subject;
+    final long[] mask;
+    final int minimum;
+    final int maximum;
+
+    /**
+     * Resolves the constraint's argument names against the spec.
+     *
+     * @param source the constraint to compile
+     * @param spec   the spec whose arguments the constraint refers to
+     * @throws IllegalArgumentException if the constraint names an argument the spec does not know
+     */
+    CompiledConstraint(Constraint source, ParserSpec spec) {
+        this.source = source;
+        this.subject = source.getSubject() == null ? -1 : ordinalOf(source.getSubject(), spec);
+        this.mask = Bits.words(spec.getArgumentCount());
+        for (String name : source.getArguments()) {
+            Bits.set(mask, ordinalOf(name, spec));
+        }
+        this.minimum = Math.min(source.getMinimum(), source.getArguments().size());
+        this.maximum = source.getMaximum();
+    }
+
+    /**
+     * Gets whether the constraint applies to the arguments that were seen. A requires constraint only applies when
+     * its subject was seen.
+     *
+     * @param seen the bitset of arguments that received values
+     * @return true if the constraint has to be checked
+     */
+    boolean appliesTo(long[] seen) {
+        return subject < 0 || Bits.get(seen, subject);
+    }
+
+    private static int ordinalOf(String name, ParserSpec spec) {
+        CompiledArgument arg = spec.resolve(name);
+        if (arg == null) {
+            throw new IllegalArgumentException("unknown argument in constraint: " + name);
+        }
+        return arg.ordinal;
+    }
+}
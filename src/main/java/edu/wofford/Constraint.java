@@ -0,0 +1,150 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * Constraint describes a rule about which arguments may or must be given together.
+ * <p>
+ * Constraints are created with the static factory methods and added to a parser with
+ * {@link ArgumentParser#addConstraint(Constraint)}, or read from the requires, oneof, atleastone and atmost elements
+ * of an XML definition. When the parser is compiled, every constraint becomes a bitmask over the spec's arguments, and
+ * all of them are checked in one pass once the command line has been read.
+ * <pre>
+ * Example:
+ * {@code
+ * parser.addConstraint(Constraint.requires("--output", "--format"));
+ * parser.addConstraint(Constraint.oneOf("--json", "--xml", "--csv"));
+ * parser.addConstraint(Constraint.atMost(2, "--fast", "--small", "--safe"));
+ * }
+ * </pre>
+ */
+public final class Constraint {
+
+    private final String subject;
+    private final List<String> arguments;
+    private final int minimum;
+    private final int maximum;
+
+    private Constraint(String subject, String[] arguments, int minimum, int maximum) {
+        if (arguments.length == 0) {
+            throw new IllegalArgumentException("a constraint needs at least one argument");
+        }
+        this.subject = subject;
+        this.arguments = Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(arguments)));
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Creates a constraint that, whenever the named argument is given, every one of the required arguments must be
+     * given as well.
+     *
+     * @param name     the name of the argument that depends on the others
+     * @param required the names of the arguments it requires
+     * @return the new Constraint
+     */
+    public static Constraint requires(String name, String... required) {
+        return new Constraint(name, required, required.length, required.length);
+    }
+
+    /**
+     * Creates a constraint that at least one of the arguments must be given.
+     *
+     * @param names the names of the arguments in the group
+     * @return the new Constraint
+     */
+    public static Constraint atLeastOne(String... names) {
+        return new Constraint(null, names, 1, names.length);
+    }
+
+    /**
+     * Creates a constraint that exactly one of the arguments must be given.
+     *
+     * @param names the names of the arguments in the group
+     * @return the new Constraint
+     */
+    public static Constraint oneOf(String... names) {
+        return new Constraint(null, names, 1, 1);
+    }
+
+    /**
+     * Creates a constraint that no more than the given number of the arguments may be given.
+     *
+     * @param count the largest number of the arguments that may be given together
+     * @param names the names of the arguments in the group
+     * @return the new Constraint
+     * @throws IllegalArgumentException if count is negative
+     */
+    public static Constraint atMost(int count, String... names) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        return new Constraint(null, names, 0, count);
+    }
+
+    /**
+     * Recreates a constraint from its parts, as returned by its getters.
+     *
+     * @param subject   the name of the dependent argument, or null for a group
+     * @param arguments the names of the arguments
+     * @param minimum   the smallest number of the arguments that must be given
+     * @param maximum   the largest number of the arguments that may be given
+     * @return the new Constraint
+     */
+    static Constraint of(String subject, String[] arguments, int minimum, int maximum) {
+        return new Constraint(subject, arguments, minimum, maximum);
+    }
+
+    /**
+     * Gets the name of the argument this constraint applies to, for a constraint made with
+     * {@link #requires(String, String...)}.
+     *
+     * @return the name of the dependent argument, or null if the constraint applies to a group
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Gets the names of the arguments that are required or that make up the group.
+     *
+     * @return an unmodifiable list of argument names
+     */
+    public List<String> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Gets the smallest number of the arguments that must be given.
+     *
+     * @return the minimum number of arguments
+     */
+    public int getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Gets the largest number of the arguments that may be given.
+     *
+     * @return the maximum number of arguments
+     */
+    public int getMaximum() {
+        return maximum;
+    }
+
+    @Override
+    public String toString() {
+        if (subject != null) {
+            return subject + " requires " + join(arguments);
+        }
+        return "between " + minimum + " and " + maximum + " of " + join(arguments);
+    }
+
+    static String join(List<String> names) {
+        StringBuilder builder = new StringBuilder();
+        for (String name : names) {
+            builder.append(builder.length() == 0 ? "" : ", ").append(name);
+        }
+        return builder.toString();
+    }
+}
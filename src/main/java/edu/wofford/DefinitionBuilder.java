@@ -0,0 +1,264 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * DefinitionBuilder turns the elements of an XML definition into {@link Definitions}. It holds everything that
+ * depends on the meaning of the elements, so the XML readers only have to report where elements start and end and
+ * hand over the text they are asked for.
+ * <p>
+ * Element names are matched without regard to case. Each name is looked up once in a table of the names the schema
+ * uses, whose keys are interned literals with their hash codes already computed, so a name spelled in lower case is
+ * dispatched without any case conversion; StAX hands over interned names, and {@link DefinitionReader} hands over the
+ * table's own Strings.
+ * Each call to {@link #startElement(String)} says what the reader must do next: nothing, hand over the text that
+ * immediately follows the start tag with {@link #text(String)}, or hand over the whole text of the element, which
+ * then counts as ended, with {@link #elementText(String)}.
+ */
+final class DefinitionBuilder {
+
+    /** The element's content is read as usual. */
+    static final int CONTENT = 0;
+    /** The text right after the start tag is passed to {@link #text(String)}. */
+    static final int TEXT = 1;
+    /** The text of the whole element is passed to {@link #elementText(String)}, and its end is not reported. */
+    static final int ELEMENT_TEXT = 2;
+
+    private static final int OTHER = 0;
+    private static final int POSITIONAL = 1;
+    private static final int NAMED = 2;
+    private static final int NAME = 3;
+    private static final int SHORTNAME = 4;
+    private static final int TYPE = 5;
+    private static final int POSITION = 6;
+    private static final int DEFAULT = 7;
+    private static final int VALUES = 8;
+    private static final int REQUIRED = 9;
+    private static final int MUTEX = 10;
+    private static final int ACCEPTED = 11;
+    private static final int REQUIRES = 12;
+    private static final int ONEOF = 13;
+    private static final int ATLEASTONE = 14;
+    private static final int ATMOST = 15;
+    private static final int ARGUMENT = 16;
+    private static final int COUNT = 17;
+    private static final int MEMBER = 18;
+    private static final int NEEDS = 19;
+
+    /** The element names of the schema, in lower case, indexed by their codes. */
+    static final String[] ELEMENT_NAMES = { "", "positional", "named", "name", "shortname", "type", "position",
+        "default", "values", "required", "mutex", "accepted", "requires", "oneof", "atleastone", "atmost", "argument",
+        "count", "member", "needs" };
+
+    private static final Map<String, Integer> CODES = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 1; i < ELEMENT_NAMES.length; i++) {
+            CODES.put(ELEMENT_NAMES[i], i);
+        }
+    }
+
+    private final Definitions definitions;
+    private final Set<String> accepted;
+    private final Set<String> mutex;
+    private final List<String> members;
+    private String name;
+    private String shortname;
+    private String type;
+    private String position;
+    private String defaultValue;
+    private String values;
+    private boolean required;
+    private String argument;
+    private String count;
+    private int constraintKind;
+    private int field;
+    private int positionalCount;
+
+    /**
+     * Creates a builder for one XML definition.
+     */
+    DefinitionBuilder() {
+        definitions = new Definitions();
+        accepted = new HashSet<String>();
+        mutex = new HashSet<String>();
+        members = new ArrayList<String>();
+    }
+
+    /**
+     * Reports the start of an element.
+     *
+     * @param localName the name of the element, without any prefix
+     * @return {@link #CONTENT}, {@link #TEXT} or {@link #ELEMENT_TEXT}
+     */
+    int startElement(String localName) {
+        int code = code(localName);
+        switch (code) {
+        case REQUIRES:
+        case ONEOF:
+        case ATLEASTONE:
+        case ATMOST:
+            constraintKind = code;
+            argument = null;
+            count = null;
+            members.clear();
+            return CONTENT;
+        default:
+            break;
+        }
+        if (constraintKind != OTHER) {
+            field = code;
+            return ELEMENT_TEXT;
+        }
+        switch (code) {
+        case POSITIONAL:
+        case NAMED:
+            accepted.clear();
+            mutex.clear();
+            name = "";
+            shortname = "";
+            type = "";
+            position = "";
+            defaultValue = "";
+            values = "1";
+            required = false;
+            return CONTENT;
+        case REQUIRED:
+            required = true;
+            return CONTENT;
+        case NAME:
+        case SHORTNAME:
+        case TYPE:
+        case POSITION:
+        case DEFAULT:
+        case VALUES:
+        case MUTEX:
+        case ACCEPTED:
+            field = code;
+            return TEXT;
+        default:
+            return CONTENT;
+        }
+    }
+
+    /**
+     * Hands over the text that follows the start tag of an element for which {@link #startElement(String)} returned
+     * {@link #TEXT}.
+     *
+     * @param text the text, exactly as read, which is empty if the element has none
+     */
+    void text(String text) {
+        switch (field) {
+        case NAME:
+            name = text;
+            break;
+        case SHORTNAME:
+            shortname = text;
+            break;
+        case TYPE:
+            type = text;
+            break;
+        case POSITION:
+            position = text;
+            break;
+        case DEFAULT:
+            defaultValue = text;
+            break;
+        case VALUES:
+            values = text;
+            break;
+        case MUTEX:
+            mutex.add("--" + text);
+            break;
+        default:
+            accepted.add(text);
+            break;
+        }
+    }
+
+    /**
+     * Hands over the text of an element for which {@link #startElement(String)} returned {@link #ELEMENT_TEXT}.
+     *
+     * @param text all of the element's text
+     */
+    void elementText(String text) {
+        text = text.trim();
+        switch (field) {
+        case MEMBER:
+        case NEEDS:
+            members.add("--" + text);
+            break;
+        case ARGUMENT:
+            argument = text;
+            break;
+        case COUNT:
+            count = text;
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Reports the end of an element.
+     *
+     * @param localName the name of the element, without any prefix
+     * @throws IllegalArgumentException if the element completes an argument or constraint that is not valid
+     */
+    void endElement(String localName) {
+        int code = code(localName);
+        if (constraintKind != OTHER && code == constraintKind) {
+            definitions.addConstraint(constraintFromXML());
+            constraintKind = OTHER;
+        } else if (code == POSITIONAL) {
+            positionalCount++;
+            String[] array = accepted.toArray(new String[accepted.size()]);
+            definitions.addPositional(Integer.parseInt(position), name, type, Argument.parseNumberOfValues(values),
+                    array);
+        } else if (code == NAMED) {
+            String[] acceptedValues = accepted.toArray(new String[accepted.size()]);
+            String[] mutexes = mutex.toArray(new String[mutex.size()]);
+            definitions.addNamed("--" + name, type, required, defaultValue, shortname, acceptedValues, mutexes);
+        }
+    }
+
+    /**
+     * Gets the definitions once the whole document has been read.
+     *
+     * @return the definitions
+     * @throws IllegalArgumentException if the positions of the positional arguments do not run from 1 up
+     */
+    Definitions finish() {
+        if (!definitions.hasPositions(positionalCount)) {
+            throw new IllegalArgumentException("positions must run from 1 to " + positionalCount);
+        }
+        return definitions;
+    }
+
+    // region Private Methods
+    private static int code(String localName) {
+        Integer code = CODES.get(localName);
+        if (code == null) {
+            code = CODES.get(localName.toLowerCase(Locale.ROOT));
+        }
+        return code == null ? OTHER : code;
+    }
+
+    private Constraint constraintFromXML() {
+        String[] names = members.toArray(new String[members.size()]);
+        switch (constraintKind) {
+        case REQUIRES:
+            if (argument == null) {
+                throw new IllegalArgumentException("requires needs an argument");
+            }
+            return Constraint.requires("--" + argument, names);
+        case ONEOF:
+            return Constraint.oneOf(names);
+        case ATLEASTONE:
+            return Constraint.atLeastOne(names);
+        default:
+            return Constraint.atMost(Integer.parseInt(count), names);
+        }
+    }
+    // endregion
+}
@@ -0,0 +1,111 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * DefinitionCache keeps the {@link Definitions} read from XML files in a directory of small binary files, so a
+ * program that reads the same XML definition every time it starts only pays for the XML reader when the file changes.
+ * <p>
+ * Each cache file is named after the absolute path of its XML file and starts with a header recording that path and
+ * the file's size, modification time and CRC-32 checksum. The cache file is memory-mapped and used only if all four
+ * still match the XML file; otherwise the XML is read as usual and the cache file is replaced. Replacements are
+ * written to a temporary file and moved into place, so a program reading the cache never sees half a file, and a
+ * cache file that cannot be read or written is simply ignored.
+ */
+final class DefinitionCache {
+
+    private static final int MAGIC = 0x57415247;
+    private static final int VERSION = 1;
+
+    private DefinitionCache() {
+    }
+
+    /**
+     * Gets the definitions of an XML file, from the cache if it is up to date and from the XML otherwise.
+     *
+     * @param xml         the XML file
+     * @param directory   the directory holding the cache files
+     * @param lightweight true to read a changed XML file with the lightweight reader before StAX
+     * @return the definitions
+     * @throws BadXMLException if the XML file cannot be read or is not a valid definition
+     */
+    static Definitions load(Path xml, Path directory, boolean lightweight) {
+        String path;
+        long modified;
+        byte[] content;
+        try {
+            Path source = xml.toAbsolutePath().normalize();
+            path = source.toString();
+            modified = Files.getLastModifiedTime(source).toMillis();
+            content = Files.readAllBytes(source);
+        } catch (IOException | InvalidPathException e) {
+            throw new BadXMLException();
+        }
+        long checksum = checksum(content);
+        Path cacheFile = directory.resolve("spec-" + Long.toHexString(checksum(path.getBytes(StandardCharsets.UTF_8)))
+                + ".bin");
+        Definitions definitions = read(cacheFile, path, content.length, modified, checksum);
+        if (definitions == null) {
+            definitions = XML.readDefinitions(content, lightweight);
+            write(cacheFile, definitions, path, content.length, modified, checksum);
+        }
+        return definitions;
+    }
+
+    // region Private Methods
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static Definitions read(Path cacheFile, String path, long size, long modified, long checksum) {
+        try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !path.equals(Definitions.readString(buffer))
+                    || buffer.getLong() != size || buffer.getLong() != modified || buffer.getLong() != checksum) {
+                return null;
+            }
+            return Definitions.read(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path cacheFile, Definitions definitions, String path, long size, long modified,
+            long checksum) {
+        Path temp = null;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            temp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                Definitions.writeString(out, path);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeLong(checksum);
+                definitions.write(out);
+            }
+            try {
+                Files.move(temp, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // the cache directory is not writable, so the cache is not used
+                }
+            }
+        }
+    }
+    // endregion
+}
@@ -0,0 +1,403 @@
+package edu.wofford;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * DefinitionReader reads an XML definition straight out of a byte buffer, without loading javax.xml.stream.
+ * <p>
+ * It understands only the plain XML that definitions are written in: an optional XML declaration, elements without
+ * attributes or namespace prefixes, self-closing elements, and text without entity or character references. Anything
+ * else, such as comments, CDATA sections, a DOCTYPE, references or malformed markup, makes it give up, and the caller
+ * reads the document with StAX instead. Within that subset it reports exactly the events the StAX reader would to a
+ * {@link DefinitionBuilder}, so both readers give the same definitions; wherever they could disagree, it gives up.
+ * Bytes outside ASCII are only accepted when the StAX path would decode them as UTF-8: for a file read like a
+ * FileReader, when the default charset is UTF-8, and for a byte stream, always, since a stream that declares any
+ * encoding other than UTF-8 is left to StAX. Bytes that are not well-formed UTF-8 are left to StAX as well, so that it
+ * reports them rather than this reader replacing them.
+ */
+final class DefinitionReader {
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final boolean declaredEncoding;
+    private final boolean asciiOnly;
+    private final Deque<String> open;
+    private int position;
+
+    private DefinitionReader(ByteBuffer buffer, boolean declaredEncoding) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+        this.declaredEncoding = declaredEncoding;
+        this.asciiOnly = !declaredEncoding && !Charset.defaultCharset().equals(StandardCharsets.UTF_8);
+        this.open = new ArrayDeque<String>();
+        this.position = buffer.position();
+    }
+
+    /**
+     * Reads the definitions in the buffer, from its position to its limit, as they would be read from a file decoded
+     * with the default charset. The buffer's position is not changed.
+     *
+     * @param buffer the bytes of the XML document
+     * @return the definitions, or null if the document must be read with StAX instead
+     * @throws IllegalArgumentException if the document is read but is not a valid definition
+     */
+    static Definitions read(ByteBuffer buffer) {
+        return read(buffer, false);
+    }
+
+    /**
+     * Reads the definitions in the buffer, from its position to its limit. The buffer's position is not changed.
+     *
+     * @param buffer           the bytes of the XML document
+     * @param declaredEncoding true if the StAX path reads the bytes as a stream, decoding them as the XML declaration
+     *                         says, false if it decodes them with the default charset
+     * @return the definitions, or null if the document must be read with StAX instead
+     * @throws IllegalArgumentException if the document is read but is not a valid definition
+     */
+    static Definitions read(ByteBuffer buffer, boolean declaredEncoding) {
+        DefinitionBuilder builder = new DefinitionBuilder();
+        DefinitionReader reader = new DefinitionReader(buffer, declaredEncoding);
+        if (!reader.isWellFormed() || !reader.readDocument(builder)) {
+            return null;
+        }
+        return builder.finish();
+    }
+
+    // region Private Methods
+    /**
+     * Gets whether the bytes outside ASCII, if any, are well-formed UTF-8. When only ASCII is accepted, text with such
+     * bytes is refused anyway, so nothing is decoded.
+     */
+    private boolean isWellFormed() {
+        int i = position;
+        while (i < limit && buffer.get(i) >= 0) {
+            i++;
+        }
+        if (i == limit || asciiOnly) {
+            return true;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = buffer.duplicate();
+        in.position(i);
+        CharBuffer out = CharBuffer.allocate(256);
+        while (true) {
+            CoderResult result = decoder.decode(in, out, true);
+            if (result.isError()) {
+                return false;
+            }
+            if (result.isUnderflow()) {
+                return true;
+            }
+            out.clear();
+        }
+    }
+
+    private boolean readDocument(DefinitionBuilder builder) {
+        if (startsWith("<?xml") && position + 5 < limit && isWhitespace(buffer.get(position + 5))
+                && !readDeclaration()) {
+            return false;
+        }
+        boolean rootSeen = false;
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b != '<') {
+                int end = skipText();
+                if (end < 0 || (open.isEmpty() && !isBlank(position, end))) {
+                    return false;
+                }
+                position = end;
+            } else if (position + 1 < limit && buffer.get(position + 1) == '/') {
+                position += 2;
+                if (!readEndTag()) {
+                    return false;
+                }
+                builder.endElement(open.pop());
+            } else {
+                if (open.isEmpty() && rootSeen) {
+                    return false;
+                }
+                rootSeen = true;
+                position++;
+                if (!readElement(builder)) {
+                    return false;
+                }
+            }
+        }
+        return rootSeen && open.isEmpty();
+    }
+
+    /**
+     * Reads an XML declaration, accepting only version 1.0 with the optional encoding and standalone pseudo-attributes
+     * in their required order.
+     */
+    private boolean readDeclaration() {
+        position += 5;
+        String[] names = { "version", "encoding", "standalone" };
+        int next = 0;
+        while (true) {
+            int before = position;
+            skipWhitespace();
+            if (startsWith("?>")) {
+                position += 2;
+                return next > 0;
+            }
+            if (position == before) {
+                return false;
+            }
+            String name = readName();
+            if (name == null) {
+                return false;
+            }
+            while (next < names.length && !names[next].equals(name)) {
+                next++;
+            }
+            if (next == names.length || (next == 0) != name.equals("version")) {
+                return false;
+            }
+            skipWhitespace();
+            if (!startsWith("=")) {
+                return false;
+            }
+            position++;
+            skipWhitespace();
+            String value = readQuoted();
+            if (value == null || !isDeclarationValue(names[next], value)) {
+                return false;
+            }
+            if (declaredEncoding && next == 1 && !value.equalsIgnoreCase("UTF-8")) {
+                return false;
+            }
+            next++;
+        }
+    }
+
+    private String readQuoted() {
+        if (position == limit || (buffer.get(position) != '"' && buffer.get(position) != '\'')) {
+            return null;
+        }
+        byte quote = buffer.get(position++);
+        int start = position;
+        while (position < limit && buffer.get(position) != quote) {
+            if (buffer.get(position) == '<' || buffer.get(position) == '&' || buffer.get(position) < 0) {
+                return null;
+            }
+            position++;
+        }
+        if (position == limit) {
+            return null;
+        }
+        return string(start, position++);
+    }
+
+    private static boolean isDeclarationValue(String name, String value) {
+        switch (name) {
+        case "version":
+            return value.equals("1.0");
+        case "standalone":
+            return value.equals("yes") || value.equals("no");
+        default:
+            for (int i = 0; i < value.length(); i++) {
+                if (!isNameByte((byte) value.charAt(i), i == 0)) {
+                    return false;
+                }
+            }
+            return !value.isEmpty();
+        }
+    }
+
+    private boolean readElement(DefinitionBuilder builder) {
+        String name = readName();
+        if (name == null) {
+            return false;
+        }
+        skipWhitespace();
+        boolean empty = startsWith("/>");
+        if (!empty && !startsWith(">")) {
+            return false;
+        }
+        position += empty ? 2 : 1;
+        switch (builder.startElement(name)) {
+        case DefinitionBuilder.TEXT:
+            if (empty) {
+                builder.text("");
+                builder.endElement(name);
+                return true;
+            }
+            int end = textEnd();
+            if (end < 0 || (end == position && !startsWith("</"))) {
+                return false;
+            }
+            builder.text(string(position, end));
+            position = end;
+            open.push(name);
+            return true;
+        case DefinitionBuilder.ELEMENT_TEXT:
+            if (empty) {
+                builder.elementText("");
+                return true;
+            }
+            end = textEnd();
+            if (end < 0) {
+                return false;
+            }
+            String text = string(position, end);
+            position = end;
+            if (!startsWith("</")) {
+                return false;
+            }
+            position += 2;
+            open.push(name);
+            if (!readEndTag()) {
+                return false;
+            }
+            open.pop();
+            builder.elementText(text);
+            return true;
+        default:
+            if (empty) {
+                builder.endElement(name);
+            } else {
+                open.push(name);
+            }
+            return true;
+        }
+    }
+
+    private boolean readEndTag() {
+        String name = readName();
+        if (name == null || !name.equals(open.peek())) {
+            return false;
+        }
+        skipWhitespace();
+        if (!startsWith(">")) {
+            return false;
+        }
+        position++;
+        return true;
+    }
+
+    /**
+     * Reads a name, returning the builder's own String for the names of the schema so that no String is created for
+     * them.
+     */
+    private String readName() {
+        int start = position;
+        while (position < limit && isNameByte(buffer.get(position), position == start)) {
+            position++;
+        }
+        if (position == start) {
+            return null;
+        }
+        for (String known : DefinitionBuilder.ELEMENT_NAMES) {
+            if (known.length() == position - start && matches(known, start)) {
+                return known;
+            }
+        }
+        return string(start, position);
+    }
+
+    private boolean matches(String s, int from) {
+        for (int i = 0; i < s.length(); i++) {
+            if (buffer.get(from + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the end of the text at the current position, for text that is handed to the builder.
+     *
+     * @return the index of the next "&lt;", or -1 if the text holds anything the StAX reader would change
+     */
+    private int textEnd() {
+        int i = position;
+        while (i < limit) {
+            byte b = buffer.get(i);
+            if (b == '<') {
+                return i + 1 < limit && buffer.get(i + 1) != '!' && buffer.get(i + 1) != '?' ? i : -1;
+            }
+            if (b == '\r' || !isPlainText(i)) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the end of text that is ignored, such as the whitespace between elements.
+     *
+     * @return the index of the next "&lt;" or the end of the buffer, or -1 if the text holds a reference
+     */
+    private int skipText() {
+        int i = position;
+        while (i < limit) {
+            byte b = buffer.get(i);
+            if (b == '<') {
+                return i + 1 < limit && buffer.get(i + 1) != '!' && buffer.get(i + 1) != '?' ? i : -1;
+            }
+            if (!isPlainText(i)) {
+                return -1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Gets whether the byte at an index may appear in text that both readers read the same way: not a reference, a
+     * control character, the end of "]]&gt;", or a byte outside ASCII when the StAX path would not decode it as UTF-8.
+     */
+    private boolean isPlainText(int i) {
+        byte b = buffer.get(i);
+        if (b == '&' || (b < 0 && asciiOnly) || (b >= 0 && b < ' ' && !isWhitespace(b))) {
+            return false;
+        }
+        return b != '>' || i < 2 || buffer.get(i - 1) != ']' || buffer.get(i - 2) != ']';
+    }
+
+    private void skipWhitespace() {
+        while (position < limit && isWhitespace(buffer.get(position))) {
+            position++;
+        }
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isWhitespace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWith(String prefix) {
+        return limit - position >= prefix.length() && matches(prefix, position);
+    }
+
+
+    private String string(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isNameByte(byte b, boolean first) {
+        if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_') {
+            return true;
+        }
+        return !first && ((b >= '0' && b <= '9') || b == '-' || b == '.');
+    }
+    // endregion
+}
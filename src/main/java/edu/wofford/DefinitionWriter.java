@@ -0,0 +1,192 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * DefinitionWriter writes a parser's arguments as an XML definition, in a single pass straight to a Writer.
+ * <p>
+ * The compact form has no whitespace between elements and matches what {@link XML#createXML} has always returned.
+ * The indented form puts each element on its own line, indented by four spaces per level, writes elements with no
+ * content as empty-element tags and ends with a newline; it is the layout of the files created by
+ * {@link XML#createXML}, without the XML declaration. In the indented form a carriage return in a value is written as
+ * a character reference, so that it is read back unchanged, and a character that XML 1.0 does not allow is rejected.
+ * A character that the output's charset cannot encode is written as a character reference too.
+ */
+final class DefinitionWriter {
+
+    private static final String INDENT = "    ";
+
+    private final Writer out;
+    private final boolean indent;
+    private final CharsetEncoder encoder;
+
+    /**
+     * Creates a writer for the compact form, which is kept as a String.
+     *
+     * @param out the Writer to write to; it is neither flushed nor closed
+     */
+    DefinitionWriter(Writer out) {
+        this.out = out;
+        this.indent = false;
+        this.encoder = null;
+    }
+
+    /**
+     * Creates a writer for the indented form.
+     *
+     * @param out     the Writer to write to; it is neither flushed nor closed
+     * @param charset the charset the Writer encodes with
+     */
+    DefinitionWriter(Writer out, Charset charset) {
+        this.out = out;
+        this.indent = true;
+        this.encoder = charset.newEncoder();
+    }
+
+    /**
+     * Writes the whole definition.
+     *
+     * @param positionalArgs the names of the positional arguments, in position order
+     * @param namedArgs      the names of the named arguments
+     * @param argumentMap    the arguments by name
+     * @throws IOException     if the Writer fails
+     * @throws BadXMLException if a value holds a character that XML does not allow
+     */
+    void write(List<String> positionalArgs, List<String> namedArgs, Map<String, Argument> argumentMap)
+            throws IOException {
+        if (indent && positionalArgs.isEmpty() && namedArgs.isEmpty()) {
+            out.write("<arguments/>\n");
+            return;
+        }
+        out.write("<arguments>");
+        int position = 1;
+        for (String name : positionalArgs) {
+            writePositional(argumentMap.get(name), position++);
+        }
+        for (String name : namedArgs) {
+            writeNamed((NamedArgument) argumentMap.get(name), argumentMap);
+        }
+        newLine(0);
+        out.write("</arguments>");
+        if (indent) {
+            out.write('\n');
+        }
+    }
+
+    // region Private Methods
+    private void writePositional(Argument arg, int position) throws IOException {
+        newLine(1);
+        out.write("<positional>");
+        element("name", arg.getName());
+        element("type", arg.getType());
+        element("position", Integer.toString(position));
+        if (arg.getNumberOfValuesExpected() != 1) {
+            element("values", arg.getNumberOfValuesExpectedString());
+        }
+        for (String value : arg.getAcceptedValues()) {
+            element("accepted", value);
+        }
+        newLine(1);
+        out.write("</positional>");
+    }
+
+    private void writeNamed(NamedArgument arg, Map<String, Argument> argumentMap) throws IOException {
+        newLine(1);
+        out.write("<named>");
+        element("name", arg.getName().substring(2));
+        String nicknames = arg.getNicknames();
+        for (int i = 1; i < nicknames.length(); i++) {
+            element("shortname", Character.toString(nicknames.charAt(i)));
+        }
+        element("type", arg.getType());
+        if (arg.isRequired()) {
+            element("required", "");
+        } else {
+            element("default", arg.getDefault());
+        }
+        if (arg.hasMutualExclusiveArgs()) {
+            for (Map.Entry<String, Argument> pair : argumentMap.entrySet()) {
+                if (pair.getKey().startsWith("--") && !pair.getKey().equals(arg.getName())) {
+                    NamedArgument namedArg = (NamedArgument) pair.getValue();
+                    if (namedArg.hasMutualExclusiveArgs() && namedArg.isMutuallyExclusive(arg)) {
+                        element("mutex", namedArg.getName().substring(2));
+                    }
+                }
+            }
+        }
+        for (String value : arg.getAcceptedValues()) {
+            element("accepted", value);
+        }
+        newLine(1);
+        out.write("</named>");
+    }
+
+    private void element(String name, String text) throws IOException {
+        newLine(2);
+        out.write('<');
+        out.write(name);
+        if (indent && text.isEmpty()) {
+            out.write("/>");
+            return;
+        }
+        out.write('>');
+        escape(text);
+        out.write("</");
+        out.write(name);
+        out.write('>');
+    }
+
+    private void newLine(int depth) throws IOException {
+        if (indent) {
+            out.write('\n');
+            for (int i = 0; i < depth; i++) {
+                out.write(INDENT);
+            }
+        }
+    }
+
+    private void escape(String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+            case '<':
+                replacement = "&lt;";
+                break;
+            case '>':
+                replacement = "&gt;";
+                break;
+            case '&':
+                replacement = "&amp;";
+                break;
+            case '\r':
+                replacement = indent ? "&#13;" : null;
+                break;
+            default:
+                if (indent && !isXMLChar(c)) {
+                    throw new BadXMLException();
+                }
+                replacement = null;
+                if (encoder != null && c >= 0x80 && !encoder.canEncode(text.substring(i, text.offsetByCodePoints(i, 1)))) {
+                    replacement = "&#" + text.codePointAt(i) + ";";
+                }
+                break;
+            }
+            if (replacement != null) {
+                out.write(text, start, i - start);
+                out.write(replacement);
+                i += Character.charCount(text.codePointAt(i)) - 1;
+                start = i + 1;
+            }
+        }
+        out.write(text, start, text.length() - start);
+    }
+
+    private static boolean isXMLChar(char c) {
+        return c >= 0x20 ? c != 0xFFFE && c != 0xFFFF : c == '\t' || c == '\n' || c == '\r';
+    }
+    // endregion
+}
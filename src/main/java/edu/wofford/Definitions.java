@@ -0,0 +1,305 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Definitions records the arguments and constraints read from an XML definition, in the order the XML reader would
+ * hand them to an {@link ArgumentParser}.
+ * <p>
+ * Reading the XML and configuring a parser are kept apart so that what a file defines can be stored in a compact
+ * binary form by the {@link DefinitionCache} and replayed into a parser later without reading the XML again. Every
+ * replay creates fresh Argument objects, so one Definitions may configure any number of parsers.
+ */
+final class Definitions {
+
+    private static final byte POSITIONAL = 1;
+    private static final byte NAMED = 2;
+    private static final byte CONSTRAINT = 3;
+
+    private final List<Definition> named;
+    private final SortedMap<Integer, Definition> positional;
+
+    /**
+     * Creates an empty set of definitions.
+     */
+    Definitions() {
+        named = new ArrayList<Definition>();
+        positional = new TreeMap<Integer, Definition>();
+    }
+
+    /**
+     * Records a positional argument.
+     *
+     * @param position the position of the argument, starting at 1
+     * @param name     the name of the argument
+     * @param type     the type of the argument
+     * @param values   the number of values the argument expects, as read by {@link Argument#parseNumberOfValues}
+     * @param accepted the values the argument accepts, or an empty array to accept any value of its type
+     */
+    void addPositional(int position, String name, String type, int values, String[] accepted) {
+        positional.put(position, new Positional(name, type, values, accepted));
+    }
+
+    /**
+     * Gets whether the positional arguments recorded have exactly the positions 1 to count.
+     *
+     * @param count the number of positional arguments expected
+     * @return true if every position from 1 to count has been recorded, and no other
+     */
+    boolean hasPositions(int count) {
+        return positional.size() == count && (count == 0 || positional.firstKey() == 1 && positional.lastKey() == count);
+    }
+
+    /**
+     * Records a named argument.
+     *
+     * @param name         the name of the argument, including the leading "--"
+     * @param type         the type of the argument
+     * @param required     true if the argument must be given
+     * @param defaultValue the default value of an argument that is not required
+     * @param shortNames   the argument's short-form names, one per character, or an empty String for none
+     * @param accepted     the values the argument accepts, or an empty array to accept any value of its type
+     * @param mutex        the names of the arguments it may not be given with
+     */
+    void addNamed(String name, String type, boolean required, String defaultValue, String shortNames,
+            String[] accepted, String[] mutex) {
+        named.add(new Named(name, type, required, defaultValue, shortNames, accepted, mutex));
+    }
+
+    /**
+     * Records a constraint. Constraints keep their place among the named arguments.
+     *
+     * @param constraint the constraint to add
+     */
+    void addConstraint(Constraint constraint) {
+        named.add(new ConstraintDefinition(constraint));
+    }
+
+    /**
+     * Adds every recorded argument and constraint to the parser: named arguments and constraints in the order they
+     * were recorded, then the positional arguments in position order.
+     *
+     * @param parser the parser to configure
+     */
+    void applyTo(ArgumentParser parser) {
+        for (Definition definition : named) {
+            definition.applyTo(parser);
+        }
+        for (Definition definition : positional.values()) {
+            definition.applyTo(parser);
+        }
+    }
+
+    /**
+     * Writes the definitions in their binary form.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(named.size() + positional.size());
+        for (Definition definition : named) {
+            definition.write(out);
+        }
+        for (Definition definition : positional.values()) {
+            definition.write(out);
+        }
+    }
+
+    /**
+     * Reads definitions written by {@link #write(DataOutputStream)}, starting at the buffer's position.
+     *
+     * @param buffer the buffer to read from
+     * @return the definitions
+     * @throws BufferUnderflowException if the buffer ends too soon
+     * @throws IllegalArgumentException if the buffer does not hold definitions
+     */
+    static Definitions read(ByteBuffer buffer) {
+        Definitions definitions = new Definitions();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            byte tag = buffer.get();
+            switch (tag) {
+            case POSITIONAL:
+                definitions.positional.put(definitions.positional.size() + 1, new Positional(readString(buffer),
+                        readString(buffer), buffer.getInt(), readStrings(buffer)));
+                break;
+            case NAMED:
+                definitions.named.add(new Named(readString(buffer), readString(buffer), buffer.get() != 0,
+                        readString(buffer), readString(buffer), readStrings(buffer), readStrings(buffer)));
+                break;
+            case CONSTRAINT:
+                definitions.named.add(new ConstraintDefinition(Constraint.of(readString(buffer), readStrings(buffer),
+                        buffer.getInt(), buffer.getInt())));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown definition: " + tag);
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Writes a String, which may be null, as its length in UTF-8 bytes followed by the bytes.
+     *
+     * @param out the stream to write to
+     * @param s   the String to write
+     * @throws IOException if the stream cannot be written
+     */
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buffer the buffer to read from
+     * @return the String, or null
+     * @throws BufferUnderflowException if the buffer ends too soon
+     */
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // region Private Methods
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String s : strings) {
+            writeString(out, s);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("bad string count: " + count);
+        }
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = readString(buffer);
+        }
+        return strings;
+    }
+
+    private interface Definition {
+        void applyTo(ArgumentParser parser);
+
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final class Positional implements Definition {
+        private final String name;
+        private final String type;
+        private final int values;
+        private final String[] accepted;
+
+        Positional(String name, String type, int values, String[] accepted) {
+            this.name = name;
+            this.type = type;
+            this.values = values;
+            this.accepted = accepted;
+        }
+
+        public void applyTo(ArgumentParser parser) {
+            Argument arg = new Argument(name);
+            arg.setType(type);
+            arg.setNumberOfValuesExpected(values);
+            arg.addAcceptedValues(accepted);
+            parser.setArgument(arg);
+        }
+
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(POSITIONAL);
+            writeString(out, name);
+            writeString(out, type);
+            out.writeInt(values);
+            writeStrings(out, accepted);
+        }
+    }
+
+    private static final class Named implements Definition {
+        private final String name;
+        private final String type;
+        private final boolean required;
+        private final String defaultValue;
+        private final String shortNames;
+        private final String[] accepted;
+        private final String[] mutex;
+
+        Named(String name, String type, boolean required, String defaultValue, String shortNames, String[] accepted,
+                String[] mutex) {
+            this.name = name;
+            this.type = type;
+            this.required = required;
+            this.defaultValue = defaultValue;
+            this.shortNames = shortNames;
+            this.accepted = accepted;
+            this.mutex = mutex;
+        }
+
+        public void applyTo(ArgumentParser parser) {
+            NamedArgument arg = required ? new NamedArgument(name) : new NamedArgument(name, defaultValue);
+            arg.setType(type);
+            arg.addAcceptedValues(accepted);
+            for (String other : mutex) {
+                arg.addMutuallyExclusiveArg(other);
+            }
+            if (shortNames.isEmpty()) {
+                parser.setArgument(arg);
+            } else {
+                parser.setNickname(arg, "-" + shortNames);
+            }
+        }
+
+        public void write(DataOutputStream out) throws IOException {
+            out.writeByte(NAMED);
+            writeString(out, name);
+            writeString(out, type);
+            out.writeByte(required ? 1 : 0);
+            writeString(out, defaultValue);
+            writeString(out, shortNames);
+            writeStrings(out, accepted);
+            writeStrings(out, mutex);
+        }
+    }
+
+    private static final class ConstraintDefinition implements Definition {
+        private final Constraint constraint;
+
+        ConstraintDefinition(Constraint constraint) {
+            this.constraint = constraint;
+        }
+
+        public void applyTo(ArgumentParser parser) {
+            parser.addConstraint(constraint);
+        }
+
+        public void write(DataOutputStream out) throws IOException {
+            List<String> arguments = constraint.getArguments();
+            out.writeByte(CONSTRAINT);
+            writeString(out, constraint.getSubject());
+            writeStrings(out, arguments.toArray(new String[arguments.size()]));
+            out.writeInt(constraint.getMinimum());
+            out.writeInt(constraint.getMaximum());
+        }
+    }
+    // endregion
+}
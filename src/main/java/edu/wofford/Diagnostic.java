@@ -0,0 +1,171 @@
+package edu.wofford;
+
+/**
+ * Diagnostic describes one problem found while parsing a command line.
+ * <p>
+ * A Diagnostic keeps the facts of the problem as fields: its {@link ErrorCode}, the argument involved, the offending
+ * value and the index of the token where it was found. The message text, which includes the usage line, is only
+ * built when {@link #getMessage()} is first called, so a caller that only looks at the fields never pays for it.
+ */
+public final class Diagnostic {
+
+    private final ParserSpec spec;
+    private final ErrorCode code;
+    private final String argumentName;
+    private final String value;
+    private final int tokenIndex;
+    private final String detail;
+    private final int count;
+    private String message;
+
+    /**
+     * Creates a diagnostic.
+     *
+     * @param spec         the spec whose usage line starts the message
+     * @param code         the kind of problem
+     * @param argumentName the name of the argument involved, or null
+     * @param value        the offending value or token, or null
+     * @param tokenIndex   the index of the offending token, or -1 if the problem is not tied to a token
+     * @param detail       the extra text the message needs, such as the type name or the other argument's name
+     * @param count        the number the message needs, such as the number of values expected
+     */
+    Diagnostic(ParserSpec spec, ErrorCode code, String argumentName, String value, int tokenIndex, String detail,
+            int count) {
+        this.spec = spec;
+        this.code = code;
+        this.argumentName = argumentName;
+        this.value = value;
+        this.tokenIndex = tokenIndex;
+        this.detail = detail;
+        this.count = count;
+    }
+
+    /**
+     * Gets the kind of problem.
+     *
+     * @return the error code
+     */
+    public ErrorCode getCode() {
+        return code;
+    }
+
+    /**
+     * Gets the name of the argument the problem concerns.
+     *
+     * @return the argument's name, or null if the problem does not concern one argument
+     */
+    public String getArgumentName() {
+        return argumentName;
+    }
+
+    /**
+     * Gets the value or token that caused the problem.
+     *
+     * @return the offending value, or null if there is none
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the index, in the array given to the parser, of the token where the problem was found.
+     *
+     * @return the token index, or -1 if the problem was found after every token was read
+     */
+    public int getTokenIndex() {
+        return tokenIndex;
+    }
+
+    /**
+     * Gets the description of the problem without the usage line, such as
+     * "argument width: invalid float value: abc".
+     *
+     * @return the description of the problem
+     */
+    public String getDescription() {
+        switch (code) {
+        case HELP:
+            return "help requested";
+        case UNRECOGNIZED_ARGUMENT:
+            return "unrecognized arguments: " + value;
+        case UNRECOGNIZED_FLAG:
+            return "unrecognized flag: " + value;
+        case AMBIGUOUS_OPTION:
+            return "ambiguous option: " + value + " could match " + detail;
+        case INVALID_TYPE:
+            return "argument " + argumentName + ": invalid " + detail + " value: " + value;
+        case UNACCEPTED_VALUE:
+            return "argument " + argumentName + ": unaccepted value: " + value;
+        case NOT_ENOUGH_VALUES:
+            return "argument " + argumentName + " requires " + count + " values";
+        case MISSING_REQUIRED:
+            return "the following arguments are required: " + argumentName;
+        case MUTUALLY_EXCLUSIVE:
+            return "the following arguments are mutually exclusive: " + argumentName + " and " + detail;
+        case REQUIRES:
+            return "argument " + argumentName + " requires " + detail;
+        case TOO_FEW_IN_GROUP:
+            return (count == 1 ? "one of the following arguments is required: "
+                    : "at least " + count + " of the following arguments are required: ") + detail;
+        case TOO_MANY_IN_GROUP:
+            return "at most " + count + " of the following arguments may be given: " + detail;
+        case RESPONSE_FILE:
+            return "cannot expand " + value + ": " + detail;
+        default:
+            return detail;
+        }
+    }
+
+    /**
+     * Gets the full message, in the same form as the message of the matching {@link ArgumentException}. The message
+     * is built on the first call and kept.
+     *
+     * @return the usage line followed by the description of the problem, or the help text for {@link ErrorCode#HELP}
+     */
+    public String getMessage() {
+        String text = message;
+        if (text == null) {
+            text = code == ErrorCode.HELP ? spec.makeHelpMessage() : spec.makeErrorMessage(getDescription());
+            message = text;
+        }
+        return text;
+    }
+
+    /**
+     * Creates the exception that reports this problem.
+     *
+     * @param stackTrace true to capture the stack trace when the exception is created
+     * @return the ArgumentException subclass that matches the error code
+     */
+    ArgumentException toException(boolean stackTrace) {
+        switch (code) {
+        case HELP:
+            return new HelpException(this, stackTrace);
+        case UNRECOGNIZED_ARGUMENT:
+        case UNRECOGNIZED_FLAG:
+        case AMBIGUOUS_OPTION:
+        case RESPONSE_FILE:
+            return new UnrecognizedArgumentException(this, stackTrace);
+        case INVALID_TYPE:
+            return new InvalidTypeException(this, stackTrace);
+        case UNACCEPTED_VALUE:
+            return new UnacceptedValueException(this, stackTrace);
+        case NOT_ENOUGH_VALUES:
+            return new NotEnoughValuesException(this, stackTrace);
+        case MISSING_REQUIRED:
+        case REQUIRES:
+        case TOO_FEW_IN_GROUP:
+            return new MissingRequiredArgumentException(this, stackTrace);
+        case MUTUALLY_EXCLUSIVE:
+        case TOO_MANY_IN_GROUP:
+            return new MutuallyExclusiveArgumentException(this, stackTrace);
+        default:
+            return new ArgumentException(this, stackTrace);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return code + ": " + getDescription();
+    }
+}
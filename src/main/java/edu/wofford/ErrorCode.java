@@ -0,0 +1,36 @@
+package edu.wofford;
+
+/**
+ * ErrorCode identifies the kind of problem an {@link ArgumentException} or {@link Diagnostic} reports, so that
+ * callers can react to it without reading the message text.
+ */
+public enum ErrorCode {
+    /** The exception was created with a message only, so the kind of problem is not known. */
+    UNSPECIFIED,
+    /** "-h" or "--help" was given; the message is the help text. */
+    HELP,
+    /** A value was given after every positional argument had been filled. */
+    UNRECOGNIZED_ARGUMENT,
+    /** A bundle of short flags such as "-abc" contained a flag the spec does not know. */
+    UNRECOGNIZED_FLAG,
+    /** An abbreviated long option matched more than one option. */
+    AMBIGUOUS_OPTION,
+    /** A value could not be converted to the argument's type. */
+    INVALID_TYPE,
+    /** A value was not one of the argument's accepted values. */
+    UNACCEPTED_VALUE,
+    /** The command line ended before an argument received all of its values. */
+    NOT_ENOUGH_VALUES,
+    /** A positional or required named argument was not given. */
+    MISSING_REQUIRED,
+    /** Two mutually exclusive arguments were both given. */
+    MUTUALLY_EXCLUSIVE,
+    /** An argument was given without an argument it requires. */
+    REQUIRES,
+    /** Fewer arguments of a constraint group were given than it needs. */
+    TOO_FEW_IN_GROUP,
+    /** More arguments of a constraint group were given than it allows. */
+    TOO_MANY_IN_GROUP,
+    /** An "@file" response file could not be opened or read, was nested too deeply, or included itself. */
+    RESPONSE_FILE
+}
@@ -0,0 +1,54 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * FlagTable maps single-character flags and short-form names straight to argument ordinals.
+ * <p>
+ * ASCII characters index a 128-entry array directly, so resolving each character of a bundle such as "-abcx" needs
+ * neither a String nor a hash lookup. Any other character falls back to a small map.
+ */
+final class FlagTable {
+
+    private static final int ASCII = 128;
+
+    private final int[] ascii;
+    private final Map<Character, Integer> overflow;
+
+    /**
+     * Creates an empty table.
+     */
+    FlagTable() {
+        ascii = new int[ASCII];
+        Arrays.fill(ascii, -1);
+        overflow = new HashMap<Character, Integer>();
+    }
+
+    /**
+     * Maps the character to the given ordinal, replacing any earlier mapping.
+     *
+     * @param c       the flag character, without its leading "-"
+     * @param ordinal the ordinal of the argument the character selects
+     */
+    void put(char c, int ordinal) {
+        if (c < ASCII) {
+            ascii[c] = ordinal;
+        } else {
+            overflow.put(c, ordinal);
+        }
+    }
+
+    /**
+     * Gets the ordinal the character is mapped to.
+     *
+     * @param c the flag character, without its leading "-"
+     * @return the ordinal of the argument, or -1 if the character is not a known flag
+     */
+    int get(char c) {
+        if (c < ASCII) {
+            return ascii[c];
+        }
+        Integer ordinal = overflow.get(c);
+        return ordinal == null ? -1 : ordinal;
+    }
+}
@@ -6,11 +6,22 @@ package edu.wofford;
 public class HelpException extends ArgumentException {
 
     /** 
-    * Constructs an HelpException with the specified detail message.
+    * Constructs a HelpException with the specified detail message.
     *
     * @param message   the detail message
     */
     public HelpException(String message) {
         super(message);
     }
+
+    /**
+    * Constructs a HelpException for a command line that asked for help. Its message is the help text of the spec that
+    * reported the diagnostic.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    HelpException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
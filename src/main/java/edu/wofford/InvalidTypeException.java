@@ -13,4 +13,15 @@ public class InvalidTypeException extends ArgumentException {
     public InvalidTypeException(String message) {
         super(message);
     }
+
+    /**
+    * Constructs an InvalidTypeException for a value that could not be converted to its argument's type. The message
+    * is built from the diagnostic, which names the argument, the expected type and the value.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    InvalidTypeException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
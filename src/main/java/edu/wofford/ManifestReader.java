@@ -0,0 +1,258 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * ManifestReader reads a file of command lines, one per line, and returns each one as the String[] a program's main
+ * method would have received.
+ * <p>
+ * Arguments on a line are separated by spaces or tabs and may be quoted the way a POSIX shell quotes them: text in
+ * single quotes is taken literally, text in double quotes is taken literally except for the escapes \", \\, \$ and
+ * \`, and outside quotes a backslash escapes the next character. A backslash at the end of a line continues the
+ * command line on the next one, whether lines end with "\n" or "\r\n", and quoted text may span lines. Blank lines
+ * and lines whose first argument starts with "#" are skipped. The file is read as UTF-8.
+ * <p>
+ * The file is memory-mapped one window at a time and tokenized straight out of the mapping, so the heap used does not
+ * grow with the size of the file; only the arguments of the current command line are copied into Strings. The
+ * reader is an Iterator, so it can be handed to {@link BatchParser#parse(Iterator, BatchParser.ResultSink)}.
+ * <pre>
+ * Example:
+ * {@code
+ * try (ManifestReader manifest = new ManifestReader(Paths.get("jobs.txt"))) {
+ *     while (manifest.hasNext()) {
+ *         ParseResult result = spec.tryParse(manifest.next());
+ *         if (!result.isValid()) {
+ *             System.out.println(manifest.getLineNumber() + ": " + result.getDiagnostics().get(0));
+ *         }
+ *     }
+ * }
+ * }
+ * </pre>
+ */
+public final class ManifestReader implements Iterator<String[]>, Closeable {
+
+    /** The size of the part of the file mapped at one time. */
+    static final int WINDOW_SIZE = 64 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private long position;
+    private long line;
+    private long recordLine;
+    private byte[] scratch;
+    private final List<String> fields;
+    private String[] pending;
+
+    /**
+     * Opens the manifest.
+     *
+     * @param path the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public ManifestReader(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    ManifestReader(Path path, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.line = 1;
+        this.scratch = new byte[256];
+        this.fields = new ArrayList<String>();
+    }
+
+    /**
+     * Gets whether there is another command line in the manifest.
+     *
+     * @return true if {@link #next()} will return a command line
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalStateException if the reader is closed, or a quote is not closed before the end of the file
+     */
+    @Override
+    public boolean hasNext() {
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("manifest reader is closed");
+        }
+        if (pending == null) {
+            pending = readRecord();
+        }
+        return pending != null;
+    }
+
+    /**
+     * Gets the next command line in the manifest.
+     *
+     * @return the arguments of the next command line
+     * @throws NoSuchElementException if there are no more command lines
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalStateException if the reader is closed, or a quote is not closed before the end of the file
+     */
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String[] record = pending;
+        pending = null;
+        return record;
+    }
+
+    /**
+     * Gets the line of the file on which the command line last returned by {@link #next()} started.
+     *
+     * @return the line number, starting at 1, or 0 if no command line has been returned
+     */
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    /**
+     * Closes the file. The mapped window is released when it is garbage collected, and the reader cannot be used
+     * afterwards.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        windowStart = 0;
+        windowEnd = 0;
+        pending = null;
+        channel.close();
+    }
+
+    // region Private Methods
+    private String[] readRecord() {
+        fields.clear();
+        long start = 0;
+        while (position < size) {
+            byte c = byteAt(position);
+            if (c == ' ' || c == '\t' || c == '\r') {
+                position++;
+            } else if (c == '\n') {
+                position++;
+                line++;
+                if (!fields.isEmpty()) {
+                    break;
+                }
+            } else if (c == '#' && fields.isEmpty()) {
+                while (position < size && byteAt(position) != '\n') {
+                    position++;
+                }
+            } else {
+                if (fields.isEmpty()) {
+                    start = line;
+                }
+                readField();
+            }
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        recordLine = start;
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    private void readField() {
+        int length = 0;
+        boolean quoted = false;
+        while (position < size) {
+            byte c = byteAt(position);
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                break;
+            }
+            position++;
+            if (c == '\'') {
+                quoted = true;
+                while ((c = quotedByteAt(position++)) != '\'') {
+                    length = append(length, c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                while ((c = quotedByteAt(position++)) != '"') {
+                    if (c == '\\') {
+                        byte escaped = quotedByteAt(position);
+                        if (escaped == '"' || escaped == '\\' || escaped == '$' || escaped == '`') {
+                            c = escaped;
+                            position++;
+                        } else if (escaped == '\n') {
+                            position++;
+                            continue;
+                        } else if (escaped == '\r' && position + 1 < size && byteAt(position + 1) == '\n') {
+                            position++;
+                            quotedByteAt(position++);
+                            continue;
+                        }
+                    }
+                    length = append(length, c);
+                }
+            } else if (c == '\\') {
+                if (position == size) {
+                    break;
+                }
+                c = byteAt(position++);
+                if (c == '\r' && position < size && byteAt(position) == '\n') {
+                    c = byteAt(position++);
+                }
+                if (c == '\n') {
+                    line++;
+                } else {
+                    length = append(length, c);
+                }
+            } else {
+                length = append(length, c);
+            }
+        }
+        if (length > 0 || quoted) {
+            fields.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+        }
+    }
+
+    private int append(int length, byte c) {
+        if (length == scratch.length) {
+            scratch = Arrays.copyOf(scratch, length * 2);
+        }
+        scratch[length] = c;
+        return length + 1;
+    }
+
+    private byte quotedByteAt(long index) {
+        if (index >= size) {
+            throw new IllegalStateException("unterminated quote on line " + line);
+        }
+        byte c = byteAt(index);
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private byte byteAt(long index) {
+        if (index < windowStart || index >= windowEnd) {
+            map(index);
+        }
+        return window.get((int) (index - windowStart));
+    }
+
+    private void map(long index) {
+        try {
+            long length = Math.min(windowSize, size - index);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, index, length);
+            windowStart = index;
+            windowEnd = index + length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    // endregion
+}
@@ -6,11 +6,22 @@ package edu.wofford;
 public class MissingRequiredArgumentException extends ArgumentException {
 
     /** 
-    * Constructs an MissingRequiredArgumentException with the specified detail message.
+    * Constructs a MissingRequiredArgumentException with the specified detail message.
     *
     * @param message   the detail message
     */
     public MissingRequiredArgumentException(String message) {
         super(message);
     }
+
+    /**
+    * Constructs a MissingRequiredArgumentException for a required argument, or one demanded by a constraint, that was
+    * not given. The message is built from the diagnostic.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    MissingRequiredArgumentException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
@@ -6,11 +6,22 @@ package edu.wofford;
 public class MutuallyExclusiveArgumentException extends ArgumentException {
 
     /** 
-    * Constructs an UnrecognizedArgumentException with the specified detail message.
+    * Constructs a MutuallyExclusiveArgumentException with the specified detail message.
     *
     * @param message   the detail message
     */
     public MutuallyExclusiveArgumentException(String message) {
         super(message);
     }
+
+    /**
+    * Constructs a MutuallyExclusiveArgumentException for arguments that may not be given together, either a mutually
+    * exclusive pair or more of a constraint group than it allows. The message is built from the diagnostic.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    MutuallyExclusiveArgumentException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
@@ -57,6 +57,7 @@ public class NamedArgument extends Argument {
      */
     public void addNickname(String nickname) {
         nicknames += nickname;
+        changed();
     }
 
     /** 
@@ -85,6 +86,7 @@ public class NamedArgument extends Argument {
     public void addMutuallyExclusiveArg(String argName) {
         if (!mutexArgs.contains(argName)) {
             mutexArgs.add(argName);
+            changed();
         }
     }
 
@@ -96,6 +98,7 @@ public class NamedArgument extends Argument {
     public void addMutuallyExclusiveArg(NamedArgument arg) {
         if (!mutexArgs.contains(arg.getName())) {
             mutexArgs.add(arg.getName());
+            changed();
         }
     }
 
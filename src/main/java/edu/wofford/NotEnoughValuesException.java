@@ -14,4 +14,15 @@ public class NotEnoughValuesException extends ArgumentException {
     public NotEnoughValuesException(String msg) {
         super(msg);
     }
+
+    /**
+    * Constructs a NotEnoughValuesException for an argument whose values ran out before the number it expects. The
+    * message is built from the diagnostic, which names the argument and that number.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    NotEnoughValuesException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
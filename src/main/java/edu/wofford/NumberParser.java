@@ -0,0 +1,328 @@
+package edu.wofford;
+
+/**
+ * NumberParser converts numeric text to int, long, float and double values without creating Strings or throwing
+ * exceptions for invalid text.
+ * <p>
+ * Every method reads a range of a CharSequence, so a value can be parsed where it lies, and gives exactly the result of
+ * the matching JDK method ({@link Long#parseLong(String)}, {@link Double#parseDouble(String)} or
+ * {@link Float#parseFloat(String)}) on the same text. Parsing does not depend on the default locale.
+ * <p>
+ * Integers of up to 18 ASCII digits are accumulated without overflow checks. Decimal floating-point text whose
+ * significand has at most 18 digits and fits the target's precision exactly, with a small enough power of ten, is
+ * converted with a single correctly rounded multiplication or division (Clinger's fast path), which is exact. Any
+ * other valid text, such as long significands, large exponents, hexadecimal literals, NaN and Infinity, is handed to
+ * the JDK.
+ */
+final class NumberParser {
+
+    /** Returned by parseInteger for text that is not a valid integer in range. */
+    static final long INVALID = Long.MIN_VALUE;
+
+    private static final double[] DOUBLE_POWERS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] FLOAT_POWERS = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    private static final long DOUBLE_SIGNIFICAND_LIMIT = 1L << 53;
+    private static final long FLOAT_SIGNIFICAND_LIMIT = 1L << 24;
+    private static final int MAX_FAST_DIGITS = 18;
+    private static final int MAX_FAST_EXPONENT = 1000;
+    private static final int MAX_UNCHECKED_DIGITS = 18;
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parses the text the way {@link Long#parseLong(String)} does, but reports invalid text through the return value
+     * instead of an exception. Because INVALID is Long.MIN_VALUE, min must be greater than Long.MIN_VALUE.
+     *
+     * @param s     the text to parse
+     * @param begin the index of the first character
+     * @param end   the index after the last character
+     * @param min   the smallest value allowed
+     * @param max   the largest value allowed
+     * @return the value of the text, or INVALID if it is not a valid integer between min and max
+     */
+    static long parseInteger(CharSequence s, int begin, int end, long min, long max) {
+        if (begin == end) {
+            return INVALID;
+        }
+        int i = begin;
+        boolean negative = false;
+        char first = s.charAt(i);
+        if (first < '0') {
+            if (first == '-') {
+                negative = true;
+            } else if (first != '+') {
+                return INVALID;
+            }
+            if (++i == end) {
+                return INVALID;
+            }
+        }
+        if (end - i <= MAX_UNCHECKED_DIGITS) {
+            long result = 0;
+            int j = i;
+            while (j < end) {
+                int digit = s.charAt(j) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                result = result * 10 + digit;
+                j++;
+            }
+            if (j == end) {
+                result = negative ? -result : result;
+                return result < min || result > max ? INVALID : result;
+            }
+        }
+        return parseIntegerChecked(s, i, end, negative, min, max);
+    }
+
+    /**
+     * Gets whether the text spells Long.MIN_VALUE, the one long that parseInteger cannot return.
+     *
+     * @param s     the text to check
+     * @param begin the index of the first character
+     * @param end   the index after the last character
+     * @return true if {@link Long#parseLong(String)} would return Long.MIN_VALUE
+     */
+    static boolean isLongMinValue(CharSequence s, int begin, int end) {
+        String digits = "9223372036854775808";
+        if (end - begin < 2 || s.charAt(begin) != '-') {
+            return false;
+        }
+        int i = begin + 1;
+        while (i < end - digits.length() && Character.digit(s.charAt(i), 10) == 0) {
+            i++;
+        }
+        if (end - i != digits.length()) {
+            return false;
+        }
+        for (int j = 0; j < digits.length(); j++) {
+            if (Character.digit(s.charAt(i + j), 10) != digits.charAt(j) - '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets whether the text is accepted by {@link Double#parseDouble(String)} and {@link Float#parseFloat(String)}.
+     * This follows the grammar documented for {@link Double#valueOf(String)}, so invalid text is rejected without
+     * catching a NumberFormatException.
+     *
+     * @param s     the text to check
+     * @param begin the index of the first character
+     * @param end   the index after the last character
+     * @return true if the text is a valid floating-point literal
+     */
+    static boolean isFloatingPoint(CharSequence s, int begin, int end) {
+        while (end > begin && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = begin;
+        while (i < end && s.charAt(i) <= ' ') {
+            i++;
+        }
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+            i++;
+        }
+        if (startsWith(s, i, end, "NaN") || startsWith(s, i, end, "Infinity")) {
+            return i + (s.charAt(i) == 'N' ? 3 : 8) == end;
+        }
+        boolean hex = i + 1 < end && s.charAt(i) == '0' && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X');
+        if (hex) {
+            i += 2;
+        }
+        int digits = 0;
+        while (i < end && isDigit(s.charAt(i), hex)) {
+            i++;
+            digits++;
+        }
+        if (i < end && s.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(s.charAt(i), hex)) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (hex ? (s.charAt(i) == 'p' || s.charAt(i) == 'P') : (s.charAt(i) == 'e' || s.charAt(i) == 'E'))) {
+            i++;
+            if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < end && isDigit(s.charAt(i), false)) {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        } else if (hex) {
+            return false;
+        }
+        if (i < end && "fFdD".indexOf(s.charAt(i)) >= 0) {
+            i++;
+        }
+        return i == end;
+    }
+
+    /**
+     * Parses valid floating-point text the way {@link Double#parseDouble(String)} does.
+     *
+     * @param s     text for which {@link #isFloatingPoint(CharSequence, int, int)} is true
+     * @param begin the index of the first character
+     * @param end   the index after the last character
+     * @return the double value of the text
+     */
+    static double parseDouble(CharSequence s, int begin, int end) {
+        double value = fastPath(s, begin, end, false);
+        return value == value ? value : Double.parseDouble(s.subSequence(begin, end).toString());
+    }
+
+    /**
+     * Parses valid floating-point text the way {@link Float#parseFloat(String)} does.
+     *
+     * @param s     text for which {@link #isFloatingPoint(CharSequence, int, int)} is true
+     * @param begin the index of the first character
+     * @param end   the index after the last character
+     * @return the float value of the text
+     */
+    static float parseFloat(CharSequence s, int begin, int end) {
+        double value = fastPath(s, begin, end, true);
+        return value == value ? (float) value : Float.parseFloat(s.subSequence(begin, end).toString());
+    }
+
+    // region Private Methods
+    private static long parseIntegerChecked(CharSequence s, int i, int end, boolean negative, long min, long max) {
+        long limit = negative ? min : -max;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        while (i < end) {
+            int digit = Character.digit(s.charAt(i++), 10);
+            if (digit < 0 || result < multiplyMin) {
+                return INVALID;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return INVALID;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private static boolean startsWith(CharSequence s, int i, int end, String prefix) {
+        if (end - i < prefix.length()) {
+            return false;
+        }
+        for (int j = 0; j < prefix.length(); j++) {
+            if (s.charAt(i + j) != prefix.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c, boolean hex) {
+        if (c >= '0' && c <= '9') {
+            return true;
+        }
+        return hex && ((c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'));
+    }
+
+    /**
+     * Converts text of the form [sign] digits [. digits] [e [sign] digits] [fFdD], with no surrounding whitespace, when
+     * its significand and power of ten are small enough for one correctly rounded operation to give the exact result.
+     *
+     * @return the value, exact as a float if single is true, or NaN if the text must be parsed by the JDK
+     */
+    private static double fastPath(CharSequence s, int i, int end, boolean single) {
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+        long significand = 0;
+        int digits = 0;
+        int exponent = 0;
+        int start = i;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (significand != 0 || digit != 0) {
+                if (++digits > MAX_FAST_DIGITS) {
+                    return Double.NaN;
+                }
+                significand = significand * 10 + digit;
+            }
+            if (fraction) {
+                exponent--;
+            }
+        }
+        if (i - start == (fraction ? 1 : 0)) {
+            return Double.NaN;
+        }
+        if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                negativeExponent = s.charAt(i) == '-';
+                i++;
+            }
+            int written = 0;
+            int exponentStart = i;
+            for (; i < end; i++) {
+                int digit = s.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || written > MAX_FAST_EXPONENT) {
+                    break;
+                }
+                written = written * 10 + digit;
+            }
+            if (i == exponentStart) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -written : written;
+        }
+        if (i < end && "fFdD".indexOf(s.charAt(i)) >= 0) {
+            i++;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        if (significand == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (single) {
+            if (significand > FLOAT_SIGNIFICAND_LIMIT || exponent < -10 || exponent > 10) {
+                return Double.NaN;
+            }
+            float value = significand;
+            value = exponent < 0 ? value / FLOAT_POWERS[-exponent] : value * FLOAT_POWERS[exponent];
+            return negative ? -value : value;
+        }
+        if (significand > DOUBLE_SIGNIFICAND_LIMIT || exponent < -22 || exponent > 22) {
+            return Double.NaN;
+        }
+        double value = significand;
+        value = exponent < 0 ? value / DOUBLE_POWERS[-exponent] : value * DOUBLE_POWERS[exponent];
+        return negative ? -value : value;
+    }
+    // endregion
+}
@@ -0,0 +1,180 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * OptionIndex maps long option names (such as "--type") to argument ordinals.
+ * <p>
+ * The names are compiled into a trie stored in flat arrays. A lookup walks one node per character of the name, so
+ * its cost depends on the length of the token and not on how many options there are. Every node also remembers
+ * whether exactly one option lies below it, which lets an unambiguous prefix such as "--verb" stand for
+ * "--verbose". Lookups work on a range of characters inside a larger token, so "--type=box" can be matched against
+ * "--type" without cutting the name out into a new String.
+ */
+final class OptionIndex {
+
+    /** Returned when no option matches. */
+    static final int NOT_FOUND = -1;
+    /** Returned when a prefix matches more than one option. */
+    static final int AMBIGUOUS = -2;
+
+    private final int[] terminal;
+    private final int[] unique;
+    private final int[] edgeStart;
+    private final int[] edgeEnd;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+
+    /**
+     * Builds an index over the given names.
+     *
+     * @param names    the option names, including their leading dashes
+     * @param ordinals the ordinal of each name, in the same order
+     */
+    OptionIndex(String[] names, int[] ordinals) {
+        Node root = new Node();
+        for (int i = 0; i < names.length; i++) {
+            Node node = root;
+            for (int j = 0; j < names[i].length(); j++) {
+                node.count++;
+                Node child = node.children.get(names[i].charAt(j));
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(names[i].charAt(j), child);
+                }
+                node = child;
+            }
+            node.count++;
+            node.ordinal = ordinals[i];
+        }
+        List<Node> nodes = new ArrayList<Node>();
+        nodes.add(root);
+        int edges = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            node.index = i;
+            edges += node.children.size();
+            nodes.addAll(node.children.values());
+        }
+        terminal = new int[nodes.size()];
+        unique = new int[nodes.size()];
+        edgeStart = new int[nodes.size()];
+        edgeEnd = new int[nodes.size()];
+        edgeLabel = new char[edges];
+        edgeTarget = new int[edges];
+        int edge = 0;
+        for (Node node : nodes) {
+            terminal[node.index] = node.ordinal;
+            if (node.count == 0) {
+                unique[node.index] = NOT_FOUND;
+            } else {
+                unique[node.index] = node.count == 1 ? findOnly(node) : AMBIGUOUS;
+            }
+            edgeStart[node.index] = edge;
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                edgeLabel[edge] = child.getKey();
+                edgeTarget[edge] = child.getValue().index;
+                edge++;
+            }
+            edgeEnd[node.index] = edge;
+        }
+    }
+
+    /**
+     * Finds the ordinal of the option whose name is exactly the characters of token from start to end.
+     *
+     * @param token the token holding the name
+     * @param start the index of the first character of the name
+     * @param end   the index after the last character of the name
+     * @return the ordinal of the option, or NOT_FOUND if there is none
+     */
+    int find(String token, int start, int end) {
+        int node = walk(token, start, end);
+        return node < 0 ? NOT_FOUND : terminal[node];
+    }
+
+    /**
+     * Finds the ordinal of the option named by the characters of token from start to end, or the only option that
+     * starts with them. An exact match always wins over a longer option with the same prefix.
+     *
+     * @param token the token holding the name or prefix
+     * @param start the index of the first character of the name
+     * @param end   the index after the last character of the name
+     * @return the ordinal of the option, NOT_FOUND if no option starts with the prefix, or AMBIGUOUS if several do
+     */
+    int findPrefix(String token, int start, int end) {
+        int node = walk(token, start, end);
+        if (node < 0) {
+            return NOT_FOUND;
+        }
+        return terminal[node] >= 0 ? terminal[node] : unique[node];
+    }
+
+    /**
+     * Gets the ordinals of every option that starts with the characters of token from start to end. This is only
+     * used to explain an ambiguous prefix, so it does not need to be fast.
+     *
+     * @param token the token holding the prefix
+     * @param start the index of the first character of the prefix
+     * @param end   the index after the last character of the prefix
+     * @return the ordinals of the matching options, in name order
+     */
+    List<Integer> candidates(String token, int start, int end) {
+        List<Integer> result = new ArrayList<Integer>();
+        int node = walk(token, start, end);
+        if (node >= 0) {
+            collect(node, result);
+        }
+        return result;
+    }
+
+    // region Private Methods
+    private int walk(String token, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end && node >= 0; i++) {
+            node = child(node, token.charAt(i));
+        }
+        return node;
+    }
+
+    private int child(int node, char c) {
+        int low = edgeStart[node];
+        int high = edgeEnd[node] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char label = edgeLabel[middle];
+            if (label < c) {
+                low = middle + 1;
+            } else if (label > c) {
+                high = middle - 1;
+            } else {
+                return edgeTarget[middle];
+            }
+        }
+        return -1;
+    }
+
+    private void collect(int node, List<Integer> result) {
+        if (terminal[node] >= 0) {
+            result.add(terminal[node]);
+        }
+        for (int edge = edgeStart[node]; edge < edgeEnd[node]; edge++) {
+            collect(edgeTarget[edge], result);
+        }
+    }
+
+    private static int findOnly(Node node) {
+        while (node.ordinal < 0) {
+            node = node.children.values().iterator().next();
+        }
+        return node.ordinal;
+    }
+    // endregion
+
+    private static final class Node {
+        final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+        int ordinal = NOT_FOUND;
+        int count;
+        int index;
+    }
+}
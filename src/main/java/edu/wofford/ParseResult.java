@@ -0,0 +1,423 @@
+package edu.wofford;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * ParseResult holds the values produced by a single call to {@link ParserSpec#parse(String[])}.
+ * <p>
+ * Values can be looked up by argument name, the same way as with {@link ArgumentParser#getValue(String)}, or through
+ * an {@link ArgumentKey}, which reads them straight out of an array indexed by the argument's ordinal. A named
+ * argument that was not provided on the command line reports its default value.
+ * <p>
+ * Every value is converted once, while it is validated, by the {@link TypeConverter} registered for the argument's
+ * type. Values of the built-in types int, long, float, double and boolean are kept in primitive arrays, and
+ * {@link #getInt(ArgumentKey)}, {@link #getFloats(ArgumentKey)} and the other typed getters read them back without
+ * parsing or boxing. Values of other registered types are read with {@link #get(ArgumentKey)} through a key from
+ * {@link ParserSpec#key(String, Class)}.
+ * <pre>
+ * Example:
+ * {@code
+ * ParseResult result = spec.parse(args);
+ * String type = result.getValue("--type");
+ * float[] numbers = result.getFloats(spec.key("numbers"));
+ * Color background = result.get(spec.key("--background", Color.class));
+ * }
+ * </pre>
+ */
+public final class ParseResult {
+
+    private final ParserSpec spec;
+    private final String[] latest;
+    private final ValueColumn[] columns;
+    private final long[] seen;
+    private final boolean collectAll;
+    private final ValueConsumers.Sink[] sinks;
+    private List<Diagnostic> diagnostics;
+
+    ParseResult(ParserSpec spec, boolean collectAll) {
+        this(spec, collectAll, null);
+    }
+
+    ParseResult(ParserSpec spec, boolean collectAll, ValueConsumers.Sink[] sinks) {
+        this.spec = spec;
+        this.collectAll = collectAll;
+        this.sinks = sinks;
+        this.latest = spec.getDefaults().clone();
+        this.columns = new ValueColumn[spec.getArgumentCount()];
+        this.seen = Bits.words(columns.length);
+    }
+
+    /**
+     * Gets the spec that produced this result.
+     *
+     * @return the ParserSpec that was used for parsing
+     */
+    public ParserSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Gets whether the command line was parsed without problems. A result returned by
+     * {@link ParserSpec#parse(String[])} is always valid; one returned by {@link ParserSpec#tryParse(String[])} may
+     * not be, and neither may one returned by {@link ParserSpec#tryParseAll(String[])}. The values of an invalid result
+     * are incomplete.
+     *
+     * @return true if no diagnostics were reported
+     */
+    public boolean isValid() {
+        return diagnostics == null;
+    }
+
+    /**
+     * Gets the problems found while parsing.
+     *
+     * @return an unmodifiable list of diagnostics, empty if the command line is valid
+     */
+    public List<Diagnostic> getDiagnostics() {
+        if (diagnostics == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * Gets the value of the argument with the associated name. If the argument was given more than once, the last
+     * value is returned.
+     *
+     * @param name the name or short-form name of the argument whose value is wanted
+     * @return string representation of the argument's value, or null if it has neither a value nor a default
+     */
+    public String getValue(String name) {
+        return latest[lookup(name).ordinal];
+    }
+
+    /**
+     * Gets the value of the argument the key refers to. If the argument was given more than once, the last value is
+     * returned. A key from {@link ParserSpec#key(String)} reads the value as text, and a key from
+     * {@link ParserSpec#key(String, Class)} reads the converted value.
+     *
+     * @param key the key of the argument
+     * @param <T> the type of value read through the key
+     * @return the argument's value, or null if it has neither a value nor a valid default
+     * @throws IllegalArgumentException if the key belongs to a different spec
+     */
+    public <T> T get(ArgumentKey<T> key) {
+        int ordinal = ordinalOf(key);
+        if (!key.isConverted()) {
+            return key.getValueType().cast(latest[ordinal]);
+        }
+        ValueColumn column = columns[ordinal] != null ? columns[ordinal] : spec.getArgument(ordinal).defaults;
+        return column == null ? null : key.getValueType().cast(column.lastObject());
+    }
+
+    /**
+     * Gets the values of the argument with the associated name.
+     *
+     * @param name the name or short-form name of the argument whose values are wanted
+     * @return an unmodifiable list of the values provided for the argument, or of its default value if none were
+     *         provided
+     */
+    public List<String> getValues(String name) {
+        return getValues(lookup(name));
+    }
+
+    /**
+     * Gets the values of the argument the key refers to.
+     *
+     * @param key the key of the argument, from {@link ParserSpec#key(String)}
+     * @return an unmodifiable list of the values provided for the argument, or of its default value if none were
+     *         provided
+     * @throws IllegalArgumentException if the key belongs to a different spec
+     */
+    public List<String> getValues(ArgumentKey<?> key) {
+        return getValues(spec.getArgument(ordinalOf(key)));
+    }
+
+    /**
+     * Gets whether the argument with the associated name was provided on the command line.
+     *
+     * @param name the name or short-form name of the argument
+     * @return true if at least one value was provided for the argument, false otherwise
+     */
+    public boolean isPresent(String name) {
+        return isPresent(lookup(name).ordinal);
+    }
+
+    /**
+     * Gets whether the argument the key refers to was provided on the command line.
+     *
+     * @param key the key of the argument, from {@link ParserSpec#key(String)}
+     * @return true if at least one value was provided for the argument, false otherwise
+     * @throws IllegalArgumentException if the key belongs to a different spec
+     */
+    public boolean isPresent(ArgumentKey<?> key) {
+        return isPresent(ordinalOf(key));
+    }
+
+    /**
+     * Gets the value of the int argument the key refers to. If the argument was given more than once, the last value
+     * is returned.
+     *
+     * @param key the key of an argument of type int
+     * @return the argument's value
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type int
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public int getInt(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.INT).lastInt();
+    }
+
+    /**
+     * Gets the value of the long argument the key refers to. If the argument was given more than once, the last value
+     * is returned.
+     *
+     * @param key the key of an argument of type long
+     * @return the argument's value
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type long
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public long getLong(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.LONG).lastLong();
+    }
+
+    /**
+     * Gets the value of the float argument the key refers to. If the argument was given more than once, the last
+     * value is returned.
+     *
+     * @param key the key of an argument of type float
+     * @return the argument's value
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type float
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public float getFloat(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.FLOAT).lastFloat();
+    }
+
+    /**
+     * Gets the value of the double argument the key refers to. If the argument was given more than once, the last
+     * value is returned.
+     *
+     * @param key the key of an argument of type double
+     * @return the argument's value
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type double
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public double getDouble(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.DOUBLE).lastDouble();
+    }
+
+    /**
+     * Gets the value of the boolean argument the key refers to. If the argument was given more than once, the last
+     * value is returned.
+     *
+     * @param key the key of an argument of type boolean
+     * @return the argument's value
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type boolean
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public boolean getBoolean(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.BOOLEAN).lastBoolean();
+    }
+
+    /**
+     * Gets every value of the int argument the key refers to.
+     *
+     * @param key the key of an argument of type int
+     * @return a new array holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type int
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public int[] getInts(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.INT).ints();
+    }
+
+    /**
+     * Gets every value of the long argument the key refers to.
+     *
+     * @param key the key of an argument of type long
+     * @return a new array holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type long
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public long[] getLongs(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.LONG).longs();
+    }
+
+    /**
+     * Gets every value of the float argument the key refers to.
+     *
+     * @param key the key of an argument of type float
+     * @return a new array holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type float
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public float[] getFloats(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.FLOAT).floats();
+    }
+
+    /**
+     * Gets every value of the double argument the key refers to.
+     *
+     * @param key the key of an argument of type double
+     * @return a new array holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type double
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public double[] getDoubles(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.DOUBLE).doubles();
+    }
+
+    /**
+     * Gets every value of the boolean argument the key refers to.
+     *
+     * @param key the key of an argument of type boolean
+     * @return a new array holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type boolean
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public boolean[] getBooleans(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.BOOLEAN).booleans();
+    }
+
+    /**
+     * Gets a read-only view of every value of the int argument the key refers to. For an argument kept off the heap
+     * (see {@link ArgumentParser#setDirectStorageThreshold(int)}) the view reads the direct buffer itself, so no
+     * values are copied.
+     *
+     * @param key the key of an argument of type int
+     * @return a buffer holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type int
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public IntBuffer getIntBuffer(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.INT).intBuffer();
+    }
+
+    /**
+     * Gets a read-only view of every value of the long argument the key refers to, without copying them.
+     *
+     * @param key the key of an argument of type long
+     * @return a buffer holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type long
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public LongBuffer getLongBuffer(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.LONG).longBuffer();
+    }
+
+    /**
+     * Gets a read-only view of every value of the float argument the key refers to, without copying them.
+     *
+     * @param key the key of an argument of type float
+     * @return a buffer holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type float
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public FloatBuffer getFloatBuffer(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.FLOAT).floatBuffer();
+    }
+
+    /**
+     * Gets a read-only view of every value of the double argument the key refers to, without copying them.
+     *
+     * @param key the key of an argument of type double
+     * @return a buffer holding the argument's values, or its default value if none were provided
+     * @throws IllegalArgumentException if the key belongs to a different spec or the argument is not of type double
+     * @throws IllegalStateException if the argument has neither a value nor a valid default
+     */
+    public DoubleBuffer getDoubleBuffer(ArgumentKey<?> key) {
+        return typedColumn(ordinalOf(key), ValueColumn.DOUBLE).doubleBuffer();
+    }
+
+    // region Package Methods
+    ValueColumn column(CompiledArgument arg) {
+        ValueColumn column = columns[arg.ordinal];
+        if (column == null) {
+            ValueConsumers.Sink sink = sinks == null ? null : sinks[arg.ordinal];
+            if (arg.direct && sink == null) {
+                column = ValueColumn.direct(arg.kind, arg.numberOfValuesExpected);
+            } else {
+                column = new ValueColumn(arg.kind, arg.numberOfValuesExpected, sink, sink == null ? arg.spillAt : 0);
+            }
+            columns[arg.ordinal] = column;
+            Bits.set(seen, arg.ordinal);
+        }
+        return column;
+    }
+
+    boolean isStreamed(CompiledArgument arg) {
+        return sinks != null && sinks[arg.ordinal] != null;
+    }
+
+    void setLatest(CompiledArgument arg, String value) {
+        latest[arg.ordinal] = value;
+    }
+
+    boolean collectsAll() {
+        return collectAll;
+    }
+
+    void addDiagnostic(Diagnostic diagnostic) {
+        if (diagnostics == null) {
+            diagnostics = new ArrayList<Diagnostic>(1);
+        }
+        diagnostics.add(diagnostic);
+    }
+
+    boolean isPresent(int ordinal) {
+        return Bits.get(seen, ordinal);
+    }
+
+    long[] seen() {
+        return seen;
+    }
+
+    List<String> getProvided(int ordinal) {
+        if (columns[ordinal] == null) {
+            return Collections.emptyList();
+        }
+        return columns[ordinal].strings();
+    }
+    // endregion
+
+    // region Private Methods
+    private List<String> getValues(CompiledArgument arg) {
+        ValueColumn column = columns[arg.ordinal];
+        if (column == null) {
+            if (arg.defaultValue == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(arg.defaultValue);
+        }
+        return Collections.unmodifiableList(column.strings());
+    }
+
+    private ValueColumn typedColumn(int ordinal, int kind) {
+        CompiledArgument arg = spec.getArgument(ordinal);
+        if (arg.kind != kind) {
+            throw new IllegalArgumentException("argument " + arg.name + " has type " + arg.type);
+        }
+        ValueColumn column = columns[ordinal] != null ? columns[ordinal] : arg.defaults;
+        if (column == null) {
+            throw new IllegalStateException("argument " + arg.name + " has no value");
+        }
+        return column;
+    }
+
+    private int ordinalOf(ArgumentKey<?> key) {
+        if (key.getSpec() != spec) {
+            throw new IllegalArgumentException("key " + key.getName() + " belongs to a different spec");
+        }
+        return key.getOrdinal();
+    }
+
+    private CompiledArgument lookup(String name) {
+        CompiledArgument arg = spec.resolve(name);
+        if (arg == null) {
+            throw new IllegalArgumentException("unknown argument: " + name);
+        }
+        return arg;
+    }
+    // endregion
+}
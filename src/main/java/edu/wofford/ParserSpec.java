@@ -0,0 +1,736 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * ParserSpec is an immutable, compiled form of an {@link ArgumentParser}'s argument definitions.
+ * <p>
+ * A ParserSpec is built once with {@link ArgumentParser#compile()} and can then be shared freely between threads.
+ * Each call to {@link #parse(String[])} returns a new {@link ParseResult} holding the values for that call only, so
+ * nothing is accumulated in the spec or in the original Argument objects.
+ * <pre>
+ * Example:
+ * {@code
+ * ArgumentParser parser = new ArgumentParser("VolumeCalculator");
+ * parser.setArguments(new String[] { "length", "width", "height" });
+ * ParserSpec spec = parser.compile();
+ * ParseResult result = spec.parse(args);
+ * String length = result.getValue("length");
+ * }
+ * </pre>
+ */
+public final class ParserSpec {
+
+    private final String programName;
+    private final String programDescription;
+    private final CompiledArgument[] arguments;
+    private final CompiledArgument[] positionals;
+    private final CompiledArgument[] named;
+    private final Map<String, CompiledArgument> byName;
+    private final FlagTable flags;
+    private final OptionIndex longOptions;
+    private final boolean allowAbbreviations;
+    private final boolean captureStackTraces;
+    private final int responseFileDepth;
+    private final int parallelThreshold;
+    private final ArgumentKey<String>[] keys;
+    private final String[] defaults;
+    private final long[][] mutexMasks;
+    private final long[] requiredMask;
+    private final CompiledConstraint[] constraints;
+    private final String usage;
+
+    ParserSpec(String programName, String programDescription, List<String> positionalArgs, List<String> namedArgs,
+            List<String> flagArgs, Map<String, Argument> argumentMap, TypeRegistry types,
+            List<Constraint> constraints, boolean allowAbbreviations, boolean captureStackTraces,
+            int responseFileDepth, int directThreshold, int parallelThreshold) {
+        this.programName = programName;
+        this.programDescription = programDescription;
+        Map<String, CompiledArgument> compiled = new LinkedHashMap<String, CompiledArgument>();
+        List<CompiledArgument> positionalList = new ArrayList<CompiledArgument>();
+        for (String name : positionalArgs) {
+            positionalList.add(compileArgument(name, argumentMap, types, compiled, false, directThreshold));
+        }
+        List<CompiledArgument> namedList = new ArrayList<CompiledArgument>();
+        for (String name : namedArgs) {
+            if (!compiled.containsKey(name)) {
+                namedList.add(compileArgument(name, argumentMap, types, compiled, true, directThreshold));
+            }
+        }
+        for (String name : flagArgs) {
+            compileArgument(name, argumentMap, types, compiled, true, directThreshold);
+        }
+        this.arguments = compiled.values().toArray(new CompiledArgument[compiled.size()]);
+        this.positionals = positionalList.toArray(new CompiledArgument[positionalList.size()]);
+        this.named = namedList.toArray(new CompiledArgument[namedList.size()]);
+        this.byName = Collections.unmodifiableMap(compiled);
+        this.flags = new FlagTable();
+        for (CompiledArgument arg : this.named) {
+            for (int i = 0; i < arg.nicknames.length(); i++) {
+                flags.put(arg.nicknames.charAt(i), arg.ordinal);
+            }
+        }
+        for (String name : flagArgs) {
+            flags.put(name.charAt(1), compiled.get(name).ordinal);
+        }
+        List<CompiledArgument> longList = new ArrayList<CompiledArgument>();
+        for (CompiledArgument arg : arguments) {
+            if (arg.name.startsWith("--")) {
+                longList.add(arg);
+            }
+        }
+        String[] longNames = new String[longList.size()];
+        int[] longOrdinals = new int[longList.size()];
+        for (int i = 0; i < longNames.length; i++) {
+            longNames[i] = longList.get(i).name;
+            longOrdinals[i] = longList.get(i).ordinal;
+        }
+        this.longOptions = new OptionIndex(longNames, longOrdinals);
+        this.allowAbbreviations = allowAbbreviations;
+        this.captureStackTraces = captureStackTraces;
+        this.responseFileDepth = responseFileDepth;
+        this.parallelThreshold = parallelThreshold;
+        @SuppressWarnings("unchecked")
+        ArgumentKey<String>[] keyTable = (ArgumentKey<String>[]) new ArgumentKey<?>[arguments.length];
+        this.keys = keyTable;
+        this.defaults = new String[arguments.length];
+        for (CompiledArgument arg : arguments) {
+            keys[arg.ordinal] = new ArgumentKey<String>(this, arg.ordinal, arg.name, String.class, false);
+            defaults[arg.ordinal] = arg.defaultValue;
+        }
+        this.mutexMasks = new long[arguments.length][];
+        for (CompiledArgument arg : arguments) {
+            for (String other : arg.mutexArgs) {
+                CompiledArgument partner = compiled.get(other);
+                if (partner != null && arg.isMutuallyExclusive(partner)) {
+                    Bits.set(mutexMask(arg.ordinal), partner.ordinal);
+                    Bits.set(mutexMask(partner.ordinal), arg.ordinal);
+                }
+            }
+        }
+        this.requiredMask = Bits.words(arguments.length);
+        for (CompiledArgument arg : named) {
+            if (arg.required) {
+                Bits.set(requiredMask, arg.ordinal);
+            }
+        }
+        this.constraints = new CompiledConstraint[constraints.size()];
+        for (int i = 0; i < this.constraints.length; i++) {
+            this.constraints[i] = new CompiledConstraint(constraints.get(i), this);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (CompiledArgument arg : positionals) {
+            switch (arg.numberOfValuesExpected) {
+            case Argument.OPTIONAL:
+                builder.append('[').append(arg.name).append("] ");
+                break;
+            case Argument.ZERO_OR_MORE:
+                builder.append('[').append(arg.name).append(" ...] ");
+                break;
+            case Argument.ONE_OR_MORE:
+                builder.append(arg.name).append(" [").append(arg.name).append(" ...] ");
+                break;
+            default:
+                builder.append(arg.name).append(' ');
+                break;
+            }
+        }
+        this.usage = "usage: java " + programName + " " + builder.toString().trim() + "\n";
+    }
+
+    /**
+     * Gets the name of the program this spec was compiled for.
+     *
+     * @return the name of the program
+     */
+    public String getProgramName() {
+        return programName;
+    }
+
+    /**
+     * Gets the description of the program this spec was compiled for.
+     *
+     * @return the description of the program
+     */
+    public String getProgramDescription() {
+        return programDescription;
+    }
+
+    /**
+     * Gets the names of every argument known to this spec, positional arguments first.
+     *
+     * @return an unmodifiable list of argument names
+     */
+    public List<String> getArgumentNames() {
+        return Collections.unmodifiableList(new ArrayList<String>(byName.keySet()));
+    }
+
+    /**
+     * Gets the key for the argument with the associated name. The name is resolved once, here; reading a value
+     * through the key afterwards is a direct array access.
+     *
+     * @param name the name or short-form name of the argument
+     * @return the ArgumentKey for the argument
+     * @throws IllegalArgumentException if the spec has no argument with that name
+     */
+    public ArgumentKey<String> key(String name) {
+        CompiledArgument arg = resolve(name);
+        if (arg == null) {
+            throw new IllegalArgumentException("unknown argument: " + name);
+        }
+        return keys[arg.ordinal];
+    }
+
+    /**
+     * Gets a key that reads the converted values of the argument with the associated name. The value type must be
+     * the one produced by the converter registered for the argument's type, such as Integer for an argument of type
+     * int; asking for String returns the same key as {@link #key(String)}.
+     *
+     * @param name      the name or short-form name of the argument
+     * @param valueType the class of the argument's converted values
+     * @param <T>       the type of value read through the key
+     * @return the ArgumentKey for the argument
+     * @throws IllegalArgumentException if the spec has no argument with that name, or its values are not of the
+     *                                  given type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ArgumentKey<T> key(String name, Class<T> valueType) {
+        ArgumentKey<String> key = key(name);
+        if (valueType == String.class) {
+            return (ArgumentKey<T>) key;
+        }
+        CompiledArgument arg = arguments[key.getOrdinal()];
+        if (!valueType.isAssignableFrom(arg.converter.getValueType())) {
+            throw new IllegalArgumentException("argument " + arg.name + " has type " + arg.type + ", not "
+                    + valueType.getSimpleName());
+        }
+        return new ArgumentKey<T>(this, arg.ordinal, arg.name, valueType, true);
+    }
+
+    /**
+     * Parses the values taken from the command line against this spec. The spec itself is not modified, so the same
+     * spec may be used by several threads at once.
+     *
+     * @param values string of values from the command line
+     * @return the values that were parsed, in a new ParseResult
+     * @throws UnrecognizedArgumentException if an argument is provided that the spec does not recognize, or an "@file"
+     *                                       response file cannot be expanded
+     * @throws MissingRequiredArgumentException if a required argument's value is not provided, or a
+     *                                          {@link Constraint} needs an argument that was not provided
+     * @throws InvalidTypeException if an argument's value does not match its expected type
+     * @throws UnacceptedValueException if an argument's value is not one of its accepted values
+     * @throws NotEnoughValuesException if an argument is given fewer values than it expects
+     * @throws HelpException if the value "-h" or "--help" is provided
+     * @throws MutuallyExclusiveArgumentException if two provided arguments must not be provided at the same time, or
+     *                                            more arguments of a {@link Constraint} group were provided than it
+     *                                            allows
+     */
+    public ParseResult parse(String[] values) {
+        ParseResult result = tryParse(values);
+        if (!result.isValid()) {
+            throw result.getDiagnostics().get(0).toException(captureStackTraces);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the values taken from the command line against this spec without throwing an exception. Parsing stops
+     * at the first problem, which is reported as a {@link Diagnostic} in the result; the diagnostics are the same,
+     * and found in the same order, as the exceptions thrown by {@link #parse(String[])}. A request for help is
+     * reported as a diagnostic with the code {@link ErrorCode#HELP}.
+     * <pre>
+     * Example:
+     * {@code
+     * ParseResult result = spec.tryParse(args);
+     * if (!result.isValid()) {
+     *     reject(result.getDiagnostics().get(0).getCode());
+     * }
+     * }
+     * </pre>
+     *
+     * @param values string of values from the command line
+     * @return a new ParseResult holding either the parsed values or the diagnostic that stopped parsing
+     */
+    public ParseResult tryParse(String[] values) {
+        ParseResult result = new ParseResult(this, false);
+        run(values, result);
+        return result;
+    }
+
+    /**
+     * Parses the values taken from the command line against this spec, streaming the values of the consumers'
+     * arguments to them as they are read instead of keeping them in the result.
+     *
+     * @param values    string of values from the command line
+     * @param consumers the consumers that receive the values of their arguments
+     * @return the values that were parsed, in a new ParseResult; a streamed argument keeps only its last value
+     * @throws IllegalArgumentException if a consumer names an argument the spec does not know, or one whose type does
+     *                                  not fit the consumer
+     * @throws ArgumentException for the same problems as {@link #parse(String[])}
+     */
+    public ParseResult parse(String[] values, ValueConsumers consumers) {
+        ParseResult result = tryParse(values, consumers);
+        if (!result.isValid()) {
+            throw result.getDiagnostics().get(0).toException(captureStackTraces);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the values taken from the command line against this spec without throwing an exception, streaming the
+     * values of the consumers' arguments to them as they are read. Parsing stops at the first problem, as with
+     * {@link #tryParse(String[])}.
+     *
+     * @param values    string of values from the command line
+     * @param consumers the consumers that receive the values of their arguments
+     * @return a new ParseResult holding either the parsed values or the diagnostic that stopped parsing
+     * @throws IllegalArgumentException if a consumer names an argument the spec does not know, or one whose type does
+     *                                  not fit the consumer
+     */
+    public ParseResult tryParse(String[] values, ValueConsumers consumers) {
+        ParseResult result = new ParseResult(this, false, consumers.resolve(this));
+        run(values, result);
+        return result;
+    }
+
+    /**
+     * Parses the values taken from the command line against this spec and reports every problem found, not just
+     * the first. The values are read once: unrecognized tokens, invalid and unaccepted values are reported as they
+     * are met and parsing goes on with the next token, and then every missing positional and required argument,
+     * every mutually exclusive pair and every broken {@link Constraint} is reported. The diagnostics are in that
+     * order. Only a request for help stops parsing early.
+     *
+     * @param values string of values from the command line
+     * @return a new ParseResult holding the parsed values and every diagnostic found
+     */
+    public ParseResult tryParseAll(String[] values) {
+        ParseResult result = new ParseResult(this, true);
+        run(values, result);
+        return result;
+    }
+
+    // region Package Methods
+    CompiledArgument getArgument(int ordinal) {
+        return arguments[ordinal];
+    }
+
+    int getArgumentCount() {
+        return arguments.length;
+    }
+
+    String[] getDefaults() {
+        return defaults;
+    }
+
+    CompiledArgument resolve(String name) {
+        CompiledArgument arg = byName.get(name);
+        if (arg == null && name.length() == 2 && name.charAt(0) == '-') {
+            int ordinal = flags.get(name.charAt(1));
+            if (ordinal >= 0) {
+                arg = arguments[ordinal];
+            }
+        }
+        return arg;
+    }
+
+    String makeErrorMessage(String error) {
+        return usage + programName + ".java: error: " + error;
+    }
+
+    String makeHelpMessage() {
+        StringBuilder descriptions = new StringBuilder("positional arguments:\n");
+        for (CompiledArgument arg : positionals) {
+            descriptions.append(arg.name).append(' ').append(arg.description).append('\n');
+        }
+        for (CompiledArgument arg : named) {
+            descriptions.append(arg.name).append(' ').append(arg.description).append('\n');
+        }
+        return usage + programDescription + "\n" + descriptions.toString().trim();
+    }
+    // endregion
+
+    // region Private Methods
+    private static CompiledArgument compileArgument(String name, Map<String, Argument> argumentMap, TypeRegistry types,
+            Map<String, CompiledArgument> compiled, boolean named, int directThreshold) {
+        CompiledArgument arg = compiled.get(name);
+        if (arg == null) {
+            Argument definition = argumentMap.get(name);
+            arg = new CompiledArgument(compiled.size(), definition, types.resolve(definition.getType()), named,
+                    directThreshold);
+            compiled.put(name, arg);
+        }
+        return arg;
+    }
+
+    private void run(String[] values, ParseResult result) {
+        Tokenizer tokens = new Tokenizer(values, responseFileDepth > 0 ? new ResponseFiles(responseFileDepth) : null,
+                flags);
+        MutexEncounters encounteredMutex = new MutexEncounters(arguments.length);
+        int positionalIndex;
+        try {
+            positionalIndex = readTokens(tokens, result, encounteredMutex);
+        } catch (ResponseFiles.Failure failure) {
+            report(result, ErrorCode.RESPONSE_FILE, null, "@" + failure.file, tokens.sourceIndex(), failure.reason, 0);
+            return;
+        } finally {
+            tokens.close();
+        }
+        if (positionalIndex < 0) {
+            return;
+        }
+        for (int i = positionalIndex; i < positionals.length; i++) {
+            if (positionals[i].minimumValues() == 0) {
+                continue;
+            }
+            if (!report(result, ErrorCode.MISSING_REQUIRED, positionals[i].name, null, -1, null, 0)) {
+                return;
+            }
+        }
+        long[] seen = result.seen();
+        for (int i = Bits.nextAndNot(requiredMask, seen, 0); i >= 0; i = Bits.nextAndNot(requiredMask, seen, i + 1)) {
+            if (!report(result, ErrorCode.MISSING_REQUIRED, arguments[i].name, null, -1, null, 0)) {
+                return;
+            }
+        }
+        if (encounteredMutex.conflicts != null) {
+            for (Diagnostic conflict : encounteredMutex.conflicts) {
+                result.addDiagnostic(conflict);
+                if (!result.collectsAll()) {
+                    return;
+                }
+            }
+        }
+        checkConstraints(result);
+    }
+
+    private int readTokens(Tokenizer tokens, ParseResult result, MutexEncounters encounteredMutex) {
+        int positionalIndex = 0;
+        while (tokens.next()) {
+            boolean proceed;
+            int kind = tokens.kind();
+            if (positionalIndex < positionals.length && tokens.isNegativeNumber()) {
+                kind = Tokenizer.VALUE;
+            }
+            switch (kind) {
+            case Tokenizer.HELP:
+                proceed = report(result, ErrorCode.HELP, null, tokens.token(), tokens.tokenIndex(), null, 0);
+                break;
+            case Tokenizer.LONG:
+                proceed = parseLong(tokens, result, encounteredMutex);
+                break;
+            case Tokenizer.SHORT:
+                if (tokens.token().length() > 2) {
+                    proceed = parseMultipleFlags(tokens, result, encounteredMutex);
+                } else {
+                    proceed = parseShortform(tokens, result, encounteredMutex);
+                }
+                break;
+            default:
+                if (positionalIndex >= positionals.length) {
+                    proceed = report(result, ErrorCode.UNRECOGNIZED_ARGUMENT, null, tokens.token(),
+                            tokens.tokenIndex(), null, 0);
+                } else {
+                    proceed = checkAndSetValues(positionals[positionalIndex], tokens.token(), tokens, result);
+                    positionalIndex++;
+                }
+                break;
+            }
+            if (!proceed) {
+                return -1;
+            }
+        }
+        return positionalIndex;
+    }
+
+    private boolean parseLong(Tokenizer tokens, ParseResult result, MutexEncounters encounteredMutex) {
+        String token = tokens.token();
+        int nameEnd = tokens.nameEnd();
+        int ordinal;
+        if (allowAbbreviations && nameEnd > 2) {
+            ordinal = longOptions.findPrefix(token, 0, nameEnd);
+        } else {
+            ordinal = longOptions.find(token, 0, nameEnd);
+        }
+        if (ordinal == OptionIndex.AMBIGUOUS) {
+            StringBuilder matches = new StringBuilder();
+            for (int candidate : longOptions.candidates(token, 0, nameEnd)) {
+                matches.append(matches.length() == 0 ? "" : ", ").append(arguments[candidate].name);
+            }
+            return report(result, ErrorCode.AMBIGUOUS_OPTION, null, token.substring(0, nameEnd), tokens.tokenIndex(),
+                    matches.toString(), 0);
+        }
+        if (ordinal >= 0) {
+            CompiledArgument current = arguments[ordinal];
+            boolean valid;
+            if (tokens.hasAttachedValue()) {
+                valid = checkAndSet(current, tokens.attachedValue(), tokens, result);
+            } else {
+                valid = parseNamedValue(current, tokens, result);
+            }
+            if (!valid) {
+                return false;
+            }
+            checkForMutexEncounter(current, tokens, result, encounteredMutex);
+        }
+        return true;
+    }
+
+    private boolean parseNamedValue(CompiledArgument current, Tokenizer tokens, ParseResult result) {
+        if (current.kind == ValueColumn.BOOLEAN) {
+            return checkAndSet(current, "true", tokens, result);
+        } else if (current.isVariadic()) {
+            if (!tokens.hasMoreValues()) {
+                if (current.minimumValues() > 0) {
+                    return report(result, ErrorCode.NOT_ENOUGH_VALUES, current.name, null, tokens.tokenIndex(), null,
+                            1);
+                }
+                result.column(current);
+                return true;
+            }
+            return checkAndSetVariadic(current, tokens.nextValue(), tokens, result);
+        } else if (!tokens.hasMore()) {
+            return report(result, ErrorCode.NOT_ENOUGH_VALUES, current.name, null, tokens.tokenIndex(), null, 1);
+        } else {
+            return checkAndSet(current, tokens.nextValue(), tokens, result);
+        }
+    }
+
+    private boolean parseMultipleFlags(Tokenizer tokens, ParseResult result, MutexEncounters encounteredMutex) {
+        String token = tokens.token();
+        for (int i = 1; i < token.length(); i++) {
+            int ordinal = flags.get(token.charAt(i));
+            if (ordinal < 0) {
+                if (!report(result, ErrorCode.UNRECOGNIZED_FLAG, null, "-" + token.charAt(i), tokens.tokenIndex(),
+                        null, 0)) {
+                    return false;
+                }
+                continue;
+            }
+            CompiledArgument current = arguments[ordinal];
+            if (current.kind == ValueColumn.BOOLEAN || i + 1 == token.length()) {
+                if (!parseNamedValue(current, tokens, result)) {
+                    return false;
+                }
+                checkForMutexEncounter(current, tokens, result, encounteredMutex);
+            } else {
+                if (!checkAndSet(current, token.substring(i + 1), tokens, result)) {
+                    return false;
+                }
+                checkForMutexEncounter(current, tokens, result, encounteredMutex);
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private boolean parseShortform(Tokenizer tokens, ParseResult result, MutexEncounters encounteredMutex) {
+        String token = tokens.token();
+        int ordinal = token.length() == 2 ? flags.get(token.charAt(1)) : -1;
+        if (ordinal >= 0) {
+            CompiledArgument current = arguments[ordinal];
+            if (!parseNamedValue(current, tokens, result)) {
+                return false;
+            }
+            checkForMutexEncounter(current, tokens, result, encounteredMutex);
+        }
+        return true;
+    }
+
+    private boolean checkAndSetValues(CompiledArgument current, String value, Tokenizer remainingValues,
+            ParseResult result) {
+        if (current.isVariadic()) {
+            return checkAndSetVariadic(current, value, remainingValues, result);
+        }
+        int valuesCount = current.numberOfValuesExpected;
+        boolean first = true;
+        while (valuesCount > 0) {
+            if (!checkAndSet(current, value, remainingValues, result)) {
+                return false;
+            }
+            valuesCount--;
+            if (valuesCount > 0) {
+                if (first && runsInParallel(current, valuesCount, result)) {
+                    int start = remainingValues.takeRun(valuesCount);
+                    if (start >= 0) {
+                        return checkAndSetRun(current, remainingValues.values(), start, valuesCount, result);
+                    }
+                }
+                first = false;
+                if (!remainingValues.hasMore()) {
+                    return report(result, ErrorCode.NOT_ENOUGH_VALUES, current.name, null,
+                            remainingValues.tokenIndex(), null, current.numberOfValuesExpected);
+                }
+                value = remainingValues.nextValue();
+            }
+        }
+        return true;
+    }
+
+    private boolean checkAndSetVariadic(CompiledArgument current, String value, Tokenizer remainingValues,
+            ParseResult result) {
+        if (!checkAndSet(current, value, remainingValues, result)) {
+            return false;
+        }
+        if (current.numberOfValuesExpected != Argument.OPTIONAL) {
+            int run = remainingValues.valueRun();
+            if (runsInParallel(current, run, result)) {
+                int start = remainingValues.takeRun(run);
+                if (start >= 0 && !checkAndSetRun(current, remainingValues.values(), start, run, result)) {
+                    return false;
+                }
+            }
+            while (remainingValues.hasMoreValues()) {
+                if (!checkAndSet(current, remainingValues.nextValue(), remainingValues, result)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean runsInParallel(CompiledArgument current, int count, ParseResult result) {
+        return parallelThreshold > 0 && count >= parallelThreshold && current.kind != ValueColumn.OBJECT
+                && !result.isStreamed(current);
+    }
+
+    private boolean checkAndSetRun(CompiledArgument current, String[] values, int start, int count,
+            ParseResult result) {
+        ValueRun run = ValueRun.convert(current, values, start, count);
+        ValueColumn column = result.column(current);
+        int lastValid = -1;
+        boolean proceed = true;
+        for (int chunk = 0; chunk < run.chunkCount() && proceed; chunk++) {
+            ValueColumn converted = run.column(chunk);
+            int segmentStart = run.chunkStart(chunk);
+            int copied = 0;
+            int[] invalid = run.invalid(chunk);
+            if (invalid != null) {
+                for (int i = 0; i < invalid.length && proceed; i++) {
+                    int index = invalid[i];
+                    if (index > segmentStart) {
+                        column.appendAll(converted, copied, copied + index - segmentStart);
+                        copied += index - segmentStart;
+                        lastValid = index - 1;
+                    }
+                    segmentStart = index + 1;
+                    String value = values[index];
+                    if (!current.accepted.isEmpty() && !current.accepted.contains(value)) {
+                        proceed = report(result, ErrorCode.UNACCEPTED_VALUE, current.name, value, index, null, 0);
+                    } else {
+                        proceed = report(result, ErrorCode.INVALID_TYPE, current.name, value, index, current.type, 0);
+                    }
+                }
+            }
+            int chunkEnd = run.chunkEnd(chunk);
+            if (proceed && chunkEnd > segmentStart) {
+                column.appendAll(converted, copied, converted.size());
+                lastValid = chunkEnd - 1;
+            }
+        }
+        if (lastValid >= 0) {
+            result.setLatest(current, values[lastValid]);
+        }
+        return proceed;
+    }
+
+    private boolean checkAndSet(CompiledArgument current, String value, Tokenizer tokens, ParseResult result) {
+        if (!current.accepted.isEmpty() && !current.accepted.contains(value)) {
+            return report(result, ErrorCode.UNACCEPTED_VALUE, current.name, value, tokens.lastIndex(), null, 0);
+        }
+        if (!current.converter.store(value, result.column(current))) {
+            return report(result, ErrorCode.INVALID_TYPE, current.name, value, tokens.lastIndex(), current.type, 0);
+        }
+        result.setLatest(current, value);
+        return true;
+    }
+
+    private void checkForMutexEncounter(CompiledArgument current, Tokenizer tokens, ParseResult result,
+            MutexEncounters encounteredMutex) {
+        long[] mask = mutexMasks[current.ordinal];
+        if (mask == null) {
+            return;
+        }
+        if ((encounteredMutex.conflicts == null || result.collectsAll())
+                && Bits.intersects(mask, encounteredMutex.seen)) {
+            int earlier = -1;
+            for (int i = Bits.nextSetBit(mask, 0); i >= 0; i = Bits.nextSetBit(mask, i + 1)) {
+                if (Bits.get(encounteredMutex.seen, i)
+                        && (earlier < 0 || encounteredMutex.order[i] < encounteredMutex.order[earlier])) {
+                    earlier = i;
+                }
+            }
+            if (encounteredMutex.conflicts == null) {
+                encounteredMutex.conflicts = new ArrayList<Diagnostic>(1);
+            }
+            encounteredMutex.conflicts.add(new Diagnostic(this, ErrorCode.MUTUALLY_EXCLUSIVE, current.name, null,
+                    tokens.tokenIndex(), arguments[earlier].name, 0));
+        }
+        if (!Bits.get(encounteredMutex.seen, current.ordinal)) {
+            Bits.set(encounteredMutex.seen, current.ordinal);
+            encounteredMutex.order[current.ordinal] = encounteredMutex.count++;
+        }
+    }
+
+    private void checkConstraints(ParseResult result) {
+        long[] seen = result.seen();
+        for (CompiledConstraint constraint : constraints) {
+            if (!constraint.appliesTo(seen)) {
+                continue;
+            }
+            if (constraint.subject >= 0) {
+                for (int i = Bits.nextAndNot(constraint.mask, seen, 0); i >= 0;
+                        i = Bits.nextAndNot(constraint.mask, seen, i + 1)) {
+                    if (!report(result, ErrorCode.REQUIRES, arguments[constraint.subject].name, null, -1,
+                            arguments[i].name, 0)) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            int count = Bits.countAnd(constraint.mask, seen);
+            if (count < constraint.minimum && !report(result, ErrorCode.TOO_FEW_IN_GROUP, null, null, -1,
+                    Constraint.join(constraint.source.getArguments()), constraint.minimum)) {
+                return;
+            }
+            if (count > constraint.maximum && !report(result, ErrorCode.TOO_MANY_IN_GROUP, null, null, -1,
+                    Constraint.join(constraint.source.getArguments()), constraint.maximum)) {
+                return;
+            }
+        }
+    }
+
+    private long[] mutexMask(int ordinal) {
+        if (mutexMasks[ordinal] == null) {
+            mutexMasks[ordinal] = Bits.words(arguments.length);
+        }
+        return mutexMasks[ordinal];
+    }
+
+    /**
+     * Adds a diagnostic to the result.
+     *
+     * @return whether parsing should go on after the problem, which it only does when collecting every problem
+     */
+    private boolean report(ParseResult result, ErrorCode code, String argumentName, String value, int tokenIndex,
+            String detail, int count) {
+        result.addDiagnostic(new Diagnostic(this, code, argumentName, value, tokenIndex, detail, count));
+        return result.collectsAll() && code != ErrorCode.HELP;
+    }
+    // endregion
+
+    /**
+     * MutexEncounters records, for one parse, the mutually exclusive arguments in the order they were first seen and
+     * the conflicts between them. Conflicts are reported only after the required arguments are checked.
+     */
+    private static final class MutexEncounters {
+        final long[] seen;
+        final int[] order;
+        int count;
+        List<Diagnostic> conflicts;
+
+        MutexEncounters(int size) {
+            seen = Bits.words(size);
+            order = new int[size];
+        }
+    }
+}
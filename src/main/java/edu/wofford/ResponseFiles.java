@@ -0,0 +1,213 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * ResponseFiles expands "@file" arguments for a {@link Tokenizer}, reading the arguments stored in the file one at a
+ * time.
+ * <p>
+ * A response file holds arguments separated by whitespace, including newlines. Arguments may be quoted with single or
+ * double quotes, a backslash outside single quotes escapes the next character, and a backslash at the end of a line,
+ * whether it ends with "\n" or "\r\n", joins it to the next one. A "#" at the start of an argument starts a comment
+ * that runs to the end of the line. An argument in a response file that starts with "@" names another response file,
+ * up to the nesting depth allowed by the spec. A file that includes itself, directly or through other files, is
+ * reported rather than read forever.
+ */
+final class ResponseFiles {
+
+    private final int maxDepth;
+    private final Deque<Frame> stack;
+    private final StringBuilder builder;
+
+    /**
+     * Creates an expander with no files open.
+     *
+     * @param maxDepth the number of response files that may be open at once
+     */
+    ResponseFiles(int maxDepth) {
+        this.maxDepth = maxDepth;
+        this.stack = new ArrayDeque<Frame>();
+        this.builder = new StringBuilder();
+    }
+
+    /**
+     * Opens a response file, so that its arguments are returned by {@link #next()} before anything else.
+     *
+     * @param name the path of the file, without the leading "@"
+     * @throws Failure if the file cannot be opened, is nested too deeply or is already being read
+     */
+    void open(String name) {
+        if (stack.size() >= maxDepth) {
+            throw new Failure(name, "response files nested more than " + maxDepth + " deep");
+        }
+        Path path;
+        try {
+            path = Paths.get(name).toRealPath();
+        } catch (IOException | InvalidPathException e) {
+            throw new Failure(name, "cannot open file");
+        }
+        for (Frame frame : stack) {
+            if (frame.path.equals(path)) {
+                throw new Failure(name, "file includes itself");
+            }
+        }
+        try {
+            Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+            stack.push(new Frame(name, path, reader));
+        } catch (IOException e) {
+            throw new Failure(name, "cannot open file");
+        }
+    }
+
+    /**
+     * Gets whether any response file is being read.
+     *
+     * @return true if {@link #next()} may return another argument
+     */
+    boolean isReading() {
+        return !stack.isEmpty();
+    }
+
+    /**
+     * Reads the next argument from the innermost open response file, closing files as they run out.
+     *
+     * @return the next argument, or null once every open file has been read to the end
+     * @throws Failure if a file cannot be read or ends inside a quote
+     */
+    String next() {
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            try {
+                String argument = readArgument(frame);
+                if (argument != null) {
+                    return argument;
+                }
+                stack.pop().reader.close();
+            } catch (IOException e) {
+                throw new Failure(frame.name, "cannot read file");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes every open response file.
+     */
+    void close() {
+        while (!stack.isEmpty()) {
+            try {
+                stack.pop().reader.close();
+            } catch (IOException e) {
+                // the file was only read, so nothing is lost
+            }
+        }
+    }
+
+    // region Private Methods
+    private String readArgument(Frame frame) throws IOException {
+        Reader reader = frame.reader;
+        int c = reader.read();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '#') {
+            if (c == '#') {
+                while (c != '\n' && c != -1) {
+                    c = reader.read();
+                }
+            } else {
+                c = reader.read();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+        builder.setLength(0);
+        while (c != -1 && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+            if (c == '\'') {
+                while ((c = reader.read()) != '\'') {
+                    checkQuote(frame, c);
+                    builder.append((char) c);
+                }
+            } else if (c == '"') {
+                while ((c = reader.read()) != '"') {
+                    checkQuote(frame, c);
+                    if (c == '\\') {
+                        c = lineFeedAfter(reader, reader.read());
+                        checkQuote(frame, c);
+                        if (c != '"' && c != '\\' && c != '$' && c != '`' && c != '\n') {
+                            builder.append('\\');
+                        } else if (c == '\n') {
+                            continue;
+                        }
+                    }
+                    builder.append((char) c);
+                }
+            } else if (c == '\\') {
+                c = lineFeedAfter(reader, reader.read());
+                if (c == -1) {
+                    break;
+                }
+                if (c != '\n') {
+                    builder.append((char) c);
+                }
+            } else {
+                builder.append((char) c);
+            }
+            c = reader.read();
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads "\r\n" after a backslash as the "\n" it ends with, so that a backslash continues the line whether the
+     * file's lines end with "\n" or "\r\n".
+     */
+    private static int lineFeedAfter(Reader reader, int c) throws IOException {
+        if (c != '\r') {
+            return c;
+        }
+        reader.mark(1);
+        if (reader.read() == '\n') {
+            return '\n';
+        }
+        reader.reset();
+        return c;
+    }
+
+    private static void checkQuote(Frame frame, int c) {
+        if (c == -1) {
+            throw new Failure(frame.name, "unterminated quote");
+        }
+    }
+
+    private static final class Frame {
+        final String name;
+        final Path path;
+        final Reader reader;
+
+        Frame(String name, Path path, Reader reader) {
+            this.name = name;
+            this.path = path;
+            this.reader = reader;
+        }
+    }
+    // endregion
+
+    /**
+     * Failure reports a response file that could not be expanded. It is caught by the spec and turned into a
+     * {@link Diagnostic}, so it carries no stack trace.
+     */
+    static final class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final String file;
+        final String reason;
+
+        Failure(String file, String reason) {
+            super(reason, null, false, false);
+            this.file = file;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package edu.wofford;
+
+/**
+ * Tokenizer walks the command-line values in place and classifies each token once.
+ * <p>
+ * The original array is never copied. After {@link #next()} returns true, {@link #kind()} tells what the current
+ * token looks like, and for long options {@link #nameEnd()} marks where the name stops, so "--name=value" can be split
+ * without building new Strings for the name.
+ * <p>
+ * When the spec expands response files, a value of the form "@file" is replaced by the arguments stored in the file.
+ * They are read one at a time through {@link ResponseFiles} as the parse asks for them, and every one of them reports
+ * the position of the "@file" value it came from.
+ */
+final class Tokenizer {
+
+    /** A token that does not start with "-", such as a positional value. */
+    static final int VALUE = 0;
+    /** A token starting with "--". */
+    static final int LONG = 1;
+    /** A token starting with a single "-", such as "-t" or "-abc". */
+    static final int SHORT = 2;
+    /** The help token, "-h" or "--help". */
+    static final int HELP = 3;
+
+    private final String[] values;
+    private final ResponseFiles files;
+    private final FlagTable flags;
+    private int index;
+    private int position;
+    private int lastPosition;
+    private String pending;
+    private int pendingPosition;
+    private boolean loaded;
+    private String token;
+    private int kind;
+    private int nameEnd;
+
+    /**
+     * Creates a tokenizer over the given command-line values.
+     *
+     * @param values the values from the command line; the array is read but never modified
+     */
+    Tokenizer(String[] values) {
+        this(values, null, null);
+    }
+
+    /**
+     * Creates a tokenizer over the given command-line values that expands "@file" values with the given response
+     * files. A token such as "-1" is read as a negative number only if the flags do not hold a flag of that name.
+     *
+     * @param values the values from the command line; the array is read but never modified
+     * @param files  the response files to expand "@file" values with, or null to take such values literally
+     * @param flags  the spec's short flags, or null if it has none
+     */
+    Tokenizer(String[] values, ResponseFiles files, FlagTable flags) {
+        this.values = values;
+        this.files = files;
+        this.flags = flags;
+        this.index = 0;
+    }
+
+    /**
+     * Advances to the next token and classifies it.
+     *
+     * @return true if there was another token, false at the end of the values
+     * @throws ResponseFiles.Failure if a response file cannot be expanded
+     */
+    boolean next() {
+        if (!load()) {
+            token = null;
+            return false;
+        }
+        token = take();
+        position = lastPosition;
+        int length = token.length();
+        nameEnd = length;
+        if (length < 2 || token.charAt(0) != '-') {
+            kind = length == 1 && token.charAt(0) == '-' ? SHORT : VALUE;
+        } else if (token.charAt(1) == '-') {
+            if (length == 6 && token.equals("--help")) {
+                kind = HELP;
+            } else {
+                kind = LONG;
+                int equals = token.indexOf('=', 2);
+                if (equals >= 0) {
+                    nameEnd = equals;
+                }
+            }
+        } else {
+            kind = length == 2 && token.charAt(1) == 'h' ? HELP : SHORT;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the current token.
+     *
+     * @return the current token, exactly as it appeared on the command line
+     */
+    String token() {
+        return token;
+    }
+
+    /**
+     * Gets the kind of the current token.
+     *
+     * @return one of VALUE, LONG, SHORT or HELP
+     */
+    int kind() {
+        return kind;
+    }
+
+    /**
+     * Gets where the option name of the current token ends. For "--name=value" this is the index of the '=' sign;
+     * otherwise it is the length of the token.
+     *
+     * @return the index after the last character of the name
+     */
+    int nameEnd() {
+        return nameEnd;
+    }
+
+    /**
+     * Gets whether the current token is a negative number such as "-5" or "-.5" that does not name a short flag, and
+     * so is read as a value.
+     *
+     * @return true if the current token is SHORT but looks like a value
+     */
+    boolean isNegativeNumber() {
+        return kind == SHORT && looksLikeValue(token);
+    }
+
+    /**
+     * Gets whether the current token carries its own value, as in "--name=value".
+     *
+     * @return true if the current token has an attached value
+     */
+    boolean hasAttachedValue() {
+        return nameEnd < token.length();
+    }
+
+    /**
+     * Gets the value attached to the current long option, everything after the '=' sign.
+     *
+     * @return the attached value
+     */
+    String attachedValue() {
+        return token.substring(nameEnd + 1);
+    }
+
+    /**
+     * Gets whether there are tokens left to read.
+     *
+     * @return true if another value can be taken
+     * @throws ResponseFiles.Failure if a response file cannot be expanded
+     */
+    boolean hasMore() {
+        return load();
+    }
+
+    /**
+     * Gets whether the next token is a value rather than an option: it does not start with "-", or it is a negative
+     * number such as "-5" or "-.5" that does not name a short flag. Variadic arguments take values while this holds.
+     *
+     * @return true if there is a next token and it looks like a value
+     * @throws ResponseFiles.Failure if a response file cannot be expanded
+     */
+    boolean hasMoreValues() {
+        return load() && looksLikeValue(pending);
+    }
+
+    /**
+     * Counts the values that follow in the original array and could be taken together with {@link #takeRun(int)}:
+     * values that look like values in the sense of {@link #hasMoreValues()} and are not "@file" values to expand.
+     *
+     * @return the number of such values, 0 while a response file is being read
+     */
+    int valueRun() {
+        int start = arrayPosition();
+        if (start < 0) {
+            return 0;
+        }
+        int end = start;
+        while (end < values.length && looksLikeValue(values[end]) && !isResponseFile(values[end])) {
+            end++;
+        }
+        return end - start;
+    }
+
+    /**
+     * Takes the next values straight from the original array, so they can be checked all at once. This only works
+     * when none of them comes from or names a response file.
+     *
+     * @param count the number of values to take
+     * @return the index of the first value taken in {@link #values()}, or -1 if the values cannot be taken this way,
+     *         in which case nothing is taken
+     */
+    int takeRun(int count) {
+        int start = arrayPosition();
+        if (start < 0 || count > values.length - start) {
+            return -1;
+        }
+        if (files != null) {
+            for (int i = start; i < start + count; i++) {
+                if (isResponseFile(values[i])) {
+                    return -1;
+                }
+            }
+        }
+        index = start + count;
+        loaded = false;
+        pending = null;
+        lastPosition = index - 1;
+        return start;
+    }
+
+    /**
+     * Gets the original values.
+     *
+     * @return the array the tokenizer was created over; it must not be modified
+     */
+    String[] values() {
+        return values;
+    }
+
+    /**
+     * Takes the next token as a raw value without classifying it. Values that belong to an option are taken this
+     * way, so a value may itself start with "-".
+     *
+     * @return the next token
+     * @throws ResponseFiles.Failure if a response file cannot be expanded
+     */
+    String nextValue() {
+        load();
+        return take();
+    }
+
+    /**
+     * Gets the position of the current token in the original values.
+     *
+     * @return the index of the current token
+     */
+    int tokenIndex() {
+        return position;
+    }
+
+    /**
+     * Gets the position of the token read last, which is the current token or the last value taken with
+     * {@link #nextValue()}.
+     *
+     * @return the index of the token read last
+     */
+    int lastIndex() {
+        return lastPosition;
+    }
+
+    /**
+     * Gets the position of the last value read from the original values. While a response file is being read, this is
+     * the "@file" value it came from.
+     *
+     * @return the index of the last value read from the original values
+     */
+    int sourceIndex() {
+        return index - 1;
+    }
+
+    /**
+     * Closes any response file still being read, for a parse that stopped early.
+     */
+    void close() {
+        if (files != null) {
+            files.close();
+        }
+    }
+
+    // region Private Methods
+    private boolean load() {
+        if (loaded) {
+            return pending != null;
+        }
+        while (true) {
+            String value;
+            if (files != null && files.isReading()) {
+                value = files.next();
+                if (value == null) {
+                    continue;
+                }
+            } else if (index < values.length) {
+                pendingPosition = index;
+                value = values[index++];
+            } else {
+                pending = null;
+                loaded = true;
+                return false;
+            }
+            if (isResponseFile(value)) {
+                files.open(value.substring(1));
+            } else {
+                pending = value;
+                loaded = true;
+                return true;
+            }
+        }
+    }
+
+    private int arrayPosition() {
+        if (files != null && files.isReading()) {
+            return -1;
+        }
+        if (!loaded) {
+            return index;
+        }
+        if (pending == null) {
+            return values.length;
+        }
+        return pendingPosition == index - 1 && values[pendingPosition] == pending ? pendingPosition : -1;
+    }
+
+    private boolean isResponseFile(String value) {
+        return files != null && value.length() > 1 && value.charAt(0) == '@';
+    }
+
+    private boolean looksLikeValue(String value) {
+        if (value.length() < 2 || value.charAt(0) != '-') {
+            return value.length() != 1 || value.charAt(0) != '-';
+        }
+        char c = value.charAt(1);
+        return ((c >= '0' && c <= '9') || c == '.') && (flags == null || flags.get(c) < 0);
+    }
+
+    private String take() {
+        loaded = false;
+        lastPosition = pendingPosition;
+        return pending;
+    }
+    // endregion
+}
@@ -0,0 +1,45 @@
+package edu.wofford;
+
+/**
+ * TypeConverter turns the text of an argument value into a value of the argument's type.
+ * <p>
+ * Converters are registered under a type name with {@link ArgumentParser#registerType(String, TypeConverter)} and
+ * are looked up once, when the parser is compiled into a {@link ParserSpec}. Arguments whose type is set to that name
+ * are then validated and converted by the converter. Because a spec may be shared between threads, a converter must
+ * not keep state between calls.
+ * <pre>
+ * Example:
+ * {@code
+ * parser.registerType("color", new TypeConverter<Color>() {
+ *     public Class<Color> getValueType() {
+ *         return Color.class;
+ *     }
+ *
+ *     public Color convert(String value) {
+ *         return Color.lookup(value);
+ *     }
+ * });
+ * parser.setArgumentType("--background", "color");
+ * }
+ * </pre>
+ *
+ * @param <T> the type of the converted values
+ */
+public interface TypeConverter<T> {
+
+    /**
+     * Gets the class of the values this converter produces.
+     *
+     * @return the class of the converted values
+     */
+    Class<T> getValueType();
+
+    /**
+     * Converts the text of a value. Invalid text is reported by returning null rather than by throwing an
+     * exception, so rejecting a value costs no more than accepting one.
+     *
+     * @param value the text of the value, exactly as it was given
+     * @return the converted value, or null if the text is not a valid value of this type
+     */
+    T convert(String value);
+}
@@ -0,0 +1,87 @@
+package edu.wofford;
+
+import java.util.*;
+
+/**
+ * TypeRegistry maps type names to the {@link TypeConverter}s that validate and convert values of that type.
+ * <p>
+ * Every registry starts out knowing the built-in types int, long, float, double, boolean and string. Other names can
+ * be registered, and a built-in name can be registered again to replace its converter. Argument types are resolved
+ * against the registry once, when an {@link ArgumentParser} is compiled; a type name the registry does not know is
+ * treated as string, so its values are accepted as they are.
+ */
+public final class TypeRegistry {
+
+    private final Map<String, BuiltInConverter<?>> converters;
+    private int revision;
+
+    /**
+     * Creates a registry that knows only the built-in types.
+     */
+    public TypeRegistry() {
+        converters = new HashMap<String, BuiltInConverter<?>>();
+        converters.put("string", BuiltInConverter.STRING);
+        converters.put("int", BuiltInConverter.INT);
+        converters.put("long", BuiltInConverter.LONG);
+        converters.put("float", BuiltInConverter.FLOAT);
+        converters.put("double", BuiltInConverter.DOUBLE);
+        converters.put("boolean", BuiltInConverter.BOOLEAN);
+    }
+
+    private TypeRegistry(TypeRegistry other) {
+        converters = new HashMap<String, BuiltInConverter<?>>(other.converters);
+    }
+
+    /**
+     * Registers the converter under the type name, replacing any converter already registered under that name.
+     *
+     * @param typeName  the name used with {@link Argument#setType(String)}
+     * @param converter the converter for values of the type
+     * @throws IllegalArgumentException if the type name is empty or the converter is null
+     */
+    public void register(String typeName, TypeConverter<?> converter) {
+        if (typeName == null || typeName.isEmpty()) {
+            throw new IllegalArgumentException("type name must not be empty");
+        }
+        if (converter == null) {
+            throw new IllegalArgumentException("converter for type " + typeName + " must not be null");
+        }
+        converters.put(typeName, BuiltInConverter.wrap(converter));
+        revision++;
+    }
+
+    /**
+     * Gets the converter registered under the type name.
+     *
+     * @param typeName the name of the type
+     * @return the converter for the type, or null if no converter is registered under that name
+     */
+    public TypeConverter<?> getConverter(String typeName) {
+        return converters.get(typeName);
+    }
+
+    /**
+     * Gets whether a converter is registered under the type name.
+     *
+     * @param typeName the name of the type
+     * @return true if the type is known to this registry
+     */
+    public boolean isRegistered(String typeName) {
+        return converters.containsKey(typeName);
+    }
+
+    // region Package Methods
+    int getRevision() {
+        return revision;
+    }
+
+    TypeRegistry copy() {
+        return new TypeRegistry(this);
+    }
+
+    BuiltInConverter<?> resolve(String typeName) {
+        BuiltInConverter<?> converter = typeName == null ? null : converters.get(typeName);
+        return converter == null ? BuiltInConverter.STRING : converter;
+    }
+    // endregion
+}
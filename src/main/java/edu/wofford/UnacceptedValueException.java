@@ -6,11 +6,22 @@ package edu.wofford;
 */
 public class UnacceptedValueException extends ArgumentException {
     /** 
-    * Constructs a UnacceptedValueException with the specified detail message.
+    * Constructs an UnacceptedValueException with the specified detail message.
     *
     * @param msg the detail message
     */
     public UnacceptedValueException(String msg) {
         super(msg);
     }
+
+    /**
+    * Constructs an UnacceptedValueException for a value that is not among its argument's accepted values. The message
+    * is built from the diagnostic, which names the argument and the value.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    UnacceptedValueException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
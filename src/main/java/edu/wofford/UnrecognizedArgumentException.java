@@ -13,4 +13,15 @@ public class UnrecognizedArgumentException extends ArgumentException {
     public UnrecognizedArgumentException(String message) {
         super(message);
     }
+
+    /**
+    * Constructs an UnrecognizedArgumentException for a command-line token that matches no argument, an ambiguous
+    * abbreviation or a response file that could not be read. The message is built from the diagnostic.
+    *
+    * @param diagnostic the problem that was found
+    * @param stackTrace true to capture the stack trace
+    */
+    UnrecognizedArgumentException(Diagnostic diagnostic, boolean stackTrace) {
+        super(diagnostic, stackTrace);
+    }
 }
@@ -0,0 +1,510 @@
+package edu.wofford;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * ValueColumn holds the values one argument received during a single parse.
+ * <p>
+ * Every value is kept as the String it was parsed from. Arguments whose converter produces int, long, float, double
+ * or boolean values also keep the converted value in a primitive array, and arguments of a registered custom type keep
+ * the converted object. Values are converted once, when they are validated, so reading one back never parses or
+ * boxes it again.
+ * <p>
+ * A column created with a {@link ValueConsumers.Sink} streams its values instead: each one is handed to the sink as it
+ * is added, and only the last one is kept.
+ * <p>
+ * A column created with {@link #direct(int, int)} keeps int, long, float or double values packed in a direct
+ * ByteBuffer outside the heap and does not keep their Strings at all; the text of such a value is formatted from the
+ * number when it is asked for. A column created with a spill count starts on the heap and moves its values into such a
+ * buffer once it holds that many, so only columns that actually grow large are kept off the heap.
+ */
+final class ValueColumn {
+
+    static final int STRING = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int FLOAT = 3;
+    static final int DOUBLE = 4;
+    static final int BOOLEAN = 5;
+    static final int OBJECT = 6;
+
+    private final int kind;
+    private String[] strings;
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+    private boolean[] booleans;
+    private Object[] objects;
+    private ByteBuffer buffer;
+    private int size;
+    private final ValueConsumers.Sink sink;
+    private final int spillAt;
+
+    /**
+     * Creates an empty column.
+     *
+     * @param kind     the kind of values the column holds
+     * @param capacity the number of values the column is expected to receive
+     */
+    ValueColumn(int kind, int capacity) {
+        this(kind, capacity, null);
+    }
+
+    /**
+     * Creates an empty column that hands its values to a sink.
+     *
+     * @param kind     the kind of values the column holds
+     * @param capacity the number of values the column is expected to receive
+     * @param sink     the sink that receives each value, or null to keep every value
+     */
+    ValueColumn(int kind, int capacity, ValueConsumers.Sink sink) {
+        this(kind, capacity, sink, 0);
+    }
+
+    /**
+     * Creates an empty column that moves its values into a direct ByteBuffer once it holds enough of them.
+     *
+     * @param kind     the kind of values the column holds
+     * @param capacity the number of values the column is expected to receive
+     * @param sink     the sink that receives each value, or null to keep every value
+     * @param spillAt  the number of int, long, float or double values from which they are kept in a direct buffer, or
+     *                 0 to keep them on the heap; ignored when a sink is given
+     */
+    ValueColumn(int kind, int capacity, ValueConsumers.Sink sink, int spillAt) {
+        this.kind = kind;
+        this.sink = sink;
+        this.spillAt = sink == null && kind >= INT && kind <= DOUBLE ? spillAt : 0;
+        capacity = sink == null ? Math.max(capacity, 1) : 1;
+        strings = new String[capacity];
+        switch (kind) {
+        case INT:
+            ints = new int[capacity];
+            break;
+        case LONG:
+            longs = new long[capacity];
+            break;
+        case FLOAT:
+            floats = new float[capacity];
+            break;
+        case DOUBLE:
+            doubles = new double[capacity];
+            break;
+        case BOOLEAN:
+            booleans = new boolean[capacity];
+            break;
+        case OBJECT:
+            objects = new Object[capacity];
+            break;
+        default:
+            break;
+        }
+    }
+
+    private ValueColumn(int kind, ByteBuffer buffer) {
+        this.kind = kind;
+        this.sink = null;
+        this.spillAt = 0;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates an empty column that keeps its values in a direct ByteBuffer.
+     *
+     * @param kind     INT, LONG, FLOAT or DOUBLE
+     * @param capacity the number of values the column is expected to receive
+     * @return the new column
+     */
+    static ValueColumn direct(int kind, int capacity) {
+        int bytes = Math.max(capacity, 1) * width(kind);
+        return new ValueColumn(kind, ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()));
+    }
+
+    void add(String value) {
+        int index = slot();
+        strings[index] = value;
+        if (sink != null) {
+            sink.acceptText(value);
+        }
+    }
+
+    void addInt(int value, String text) {
+        if (isDirect()) {
+            reserve().putInt(value);
+            return;
+        }
+        int index = slot();
+        ints[index] = value;
+        strings[index] = text;
+        if (sink != null) {
+            sink.acceptInt(value, text);
+        }
+    }
+
+    void addLong(long value, String text) {
+        if (isDirect()) {
+            reserve().putLong(value);
+            return;
+        }
+        int index = slot();
+        longs[index] = value;
+        strings[index] = text;
+        if (sink != null) {
+            sink.acceptLong(value, text);
+        }
+    }
+
+    void addFloat(float value, String text) {
+        if (isDirect()) {
+            reserve().putFloat(value);
+            return;
+        }
+        int index = slot();
+        floats[index] = value;
+        strings[index] = text;
+        if (sink != null) {
+            sink.acceptFloat(value, text);
+        }
+    }
+
+    void addDouble(double value, String text) {
+        if (isDirect()) {
+            reserve().putDouble(value);
+            return;
+        }
+        int index = slot();
+        doubles[index] = value;
+        strings[index] = text;
+        if (sink != null) {
+            sink.acceptDouble(value, text);
+        }
+    }
+
+    void addBoolean(boolean value, String text) {
+        int index = slot();
+        booleans[index] = value;
+        strings[index] = text;
+        if (sink != null) {
+            sink.acceptBoolean(value, text);
+        }
+    }
+
+    void addObject(Object value, String text) {
+        int index = slot();
+        objects[index] = value;
+        strings[index] = text;
+        if (sink != null) {
+            sink.acceptObject(value, text);
+        }
+    }
+
+    /**
+     * Adds values taken from another column of the same kind.
+     *
+     * @param other the column to copy from
+     * @param from  the index of the first value to copy
+     * @param to    the index after the last value to copy
+     */
+    void appendAll(ValueColumn other, int from, int to) {
+        if (buffer == null && sink == null && other.buffer == null) {
+            int count = to - from;
+            if (size + count > strings.length) {
+                resize(Math.max(size + count, size * 2));
+            }
+            System.arraycopy(other.strings, from, strings, size, count);
+            if (ints != null) {
+                System.arraycopy(other.ints, from, ints, size, count);
+            } else if (longs != null) {
+                System.arraycopy(other.longs, from, longs, size, count);
+            } else if (floats != null) {
+                System.arraycopy(other.floats, from, floats, size, count);
+            } else if (doubles != null) {
+                System.arraycopy(other.doubles, from, doubles, size, count);
+            } else if (booleans != null) {
+                System.arraycopy(other.booleans, from, booleans, size, count);
+            } else if (objects != null) {
+                System.arraycopy(other.objects, from, objects, size, count);
+            }
+            size += count;
+            isDirect();
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            switch (kind) {
+            case INT:
+                addInt(other.ints[i], other.strings[i]);
+                break;
+            case LONG:
+                addLong(other.longs[i], other.strings[i]);
+                break;
+            case FLOAT:
+                addFloat(other.floats[i], other.strings[i]);
+                break;
+            case DOUBLE:
+                addDouble(other.doubles[i], other.strings[i]);
+                break;
+            case BOOLEAN:
+                addBoolean(other.booleans[i], other.strings[i]);
+                break;
+            case OBJECT:
+                addObject(other.objects[i], other.strings[i]);
+                break;
+            default:
+                add(other.strings[i]);
+                break;
+            }
+        }
+    }
+
+    int kind() {
+        return kind;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String lastString() {
+        return buffer != null ? text(size - 1) : strings[size - 1];
+    }
+
+    int lastInt() {
+        return buffer != null ? buffer.getInt((size - 1) * 4) : ints[size - 1];
+    }
+
+    long lastLong() {
+        return buffer != null ? buffer.getLong((size - 1) * 8) : longs[size - 1];
+    }
+
+    float lastFloat() {
+        return buffer != null ? buffer.getFloat((size - 1) * 4) : floats[size - 1];
+    }
+
+    double lastDouble() {
+        return buffer != null ? buffer.getDouble((size - 1) * 8) : doubles[size - 1];
+    }
+
+    boolean lastBoolean() {
+        return booleans[size - 1];
+    }
+
+    /**
+     * Gets the last converted value as an object, boxing it if the column is primitive.
+     *
+     * @return the last converted value
+     */
+    Object lastObject() {
+        switch (kind) {
+        case INT:
+            return lastInt();
+        case LONG:
+            return lastLong();
+        case FLOAT:
+            return lastFloat();
+        case DOUBLE:
+            return lastDouble();
+        case BOOLEAN:
+            return lastBoolean();
+        case OBJECT:
+            return objects[size - 1];
+        default:
+            return lastString();
+        }
+    }
+
+    List<String> strings() {
+        if (buffer != null) {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    if (index < 0 || index >= size) {
+                        throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+                    }
+                    return text(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return Arrays.asList(strings).subList(0, size);
+    }
+
+    int[] ints() {
+        if (buffer != null) {
+            int[] values = new int[size];
+            intBuffer().get(values);
+            return values;
+        }
+        return Arrays.copyOf(ints, size);
+    }
+
+    long[] longs() {
+        if (buffer != null) {
+            long[] values = new long[size];
+            longBuffer().get(values);
+            return values;
+        }
+        return Arrays.copyOf(longs, size);
+    }
+
+    float[] floats() {
+        if (buffer != null) {
+            float[] values = new float[size];
+            floatBuffer().get(values);
+            return values;
+        }
+        return Arrays.copyOf(floats, size);
+    }
+
+    double[] doubles() {
+        if (buffer != null) {
+            double[] values = new double[size];
+            doubleBuffer().get(values);
+            return values;
+        }
+        return Arrays.copyOf(doubles, size);
+    }
+
+    /**
+     * Gets a read-only view of the int values. The view of a direct column shares its memory, so no values are
+     * copied.
+     *
+     * @return a buffer positioned at the first value, with one int per value
+     */
+    IntBuffer intBuffer() {
+        if (buffer != null) {
+            return view().asIntBuffer().asReadOnlyBuffer();
+        }
+        return IntBuffer.wrap(ints, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    LongBuffer longBuffer() {
+        if (buffer != null) {
+            return view().asLongBuffer().asReadOnlyBuffer();
+        }
+        return LongBuffer.wrap(longs, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    FloatBuffer floatBuffer() {
+        if (buffer != null) {
+            return view().asFloatBuffer().asReadOnlyBuffer();
+        }
+        return FloatBuffer.wrap(floats, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    DoubleBuffer doubleBuffer() {
+        if (buffer != null) {
+            return view().asDoubleBuffer().asReadOnlyBuffer();
+        }
+        return DoubleBuffer.wrap(doubles, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    boolean[] booleans() {
+        return Arrays.copyOf(booleans, size);
+    }
+
+    private static int width(int kind) {
+        return kind == LONG || kind == DOUBLE ? 8 : 4;
+    }
+
+    /**
+     * Gets whether the values are kept in a direct buffer, first moving them there if the column has reached its
+     * spill count.
+     */
+    private boolean isDirect() {
+        if (buffer == null && spillAt > 0 && size >= spillAt) {
+            int width = width(kind);
+            ByteBuffer moved = ByteBuffer.allocateDirect(size * 2 * width).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < size; i++) {
+                switch (kind) {
+                case INT:
+                    moved.putInt(ints[i]);
+                    break;
+                case LONG:
+                    moved.putLong(longs[i]);
+                    break;
+                case FLOAT:
+                    moved.putFloat(floats[i]);
+                    break;
+                default:
+                    moved.putDouble(doubles[i]);
+                    break;
+                }
+            }
+            buffer = moved;
+            strings = null;
+            ints = null;
+            longs = null;
+            floats = null;
+            doubles = null;
+        }
+        return buffer != null;
+    }
+
+    private ByteBuffer view() {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(size * width(kind)).position(0);
+        return view.order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer reserve() {
+        int width = width(kind);
+        if (buffer.remaining() < width) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2).order(ByteOrder.nativeOrder());
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        size++;
+        return buffer;
+    }
+
+    private String text(int index) {
+        switch (kind) {
+        case INT:
+            return Integer.toString(buffer.getInt(index * 4));
+        case LONG:
+            return Long.toString(buffer.getLong(index * 8));
+        case FLOAT:
+            return Float.toString(buffer.getFloat(index * 4));
+        default:
+            return Double.toString(buffer.getDouble(index * 8));
+        }
+    }
+
+    private int slot() {
+        if (sink != null) {
+            size = 1;
+            return 0;
+        }
+        grow();
+        return size++;
+    }
+
+    private void grow() {
+        if (size == strings.length) {
+            resize(size * 2);
+        }
+    }
+
+    private void resize(int capacity) {
+        strings = Arrays.copyOf(strings, capacity);
+        if (ints != null) {
+            ints = Arrays.copyOf(ints, capacity);
+        } else if (longs != null) {
+            longs = Arrays.copyOf(longs, capacity);
+        } else if (floats != null) {
+            floats = Arrays.copyOf(floats, capacity);
+        } else if (doubles != null) {
+            doubles = Arrays.copyOf(doubles, capacity);
+        } else if (booleans != null) {
+            booleans = Arrays.copyOf(booleans, capacity);
+        } else if (objects != null) {
+            objects = Arrays.copyOf(objects, capacity);
+        }
+    }
+}
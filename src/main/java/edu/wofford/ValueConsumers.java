@@ -0,0 +1,196 @@
+package edu.wofford;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * ValueConsumers streams the values of chosen arguments to the application while the command line is parsed,
+ * instead of collecting them in the {@link ParseResult}.
+ * <p>
+ * A consumer receives each value as soon as it has been read, checked against the argument's accepted values and
+ * converted, so an argument that expects millions of values never holds more than its last one in memory. The result
+ * still reports the argument as present, and its getters return the last value received. Because values are handed
+ * over as they are read, a consumer may already have received values from a command line that is rejected later on.
+ * <pre>
+ * Example:
+ * {@code
+ * DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+ * ValueConsumers consumers = new ValueConsumers().onDouble("samples", stats);
+ * spec.parse(args, consumers);
+ * }
+ * </pre>
+ */
+public final class ValueConsumers {
+
+    private final Map<String, Sink> sinks;
+
+    /**
+     * Creates an empty set of consumers.
+     */
+    public ValueConsumers() {
+        sinks = new LinkedHashMap<String, Sink>();
+    }
+
+    /**
+     * Streams the values of an int argument to the consumer.
+     *
+     * @param name     the name of the argument
+     * @param consumer the consumer that receives each value
+     * @return this object, so calls can be chained
+     */
+    public ValueConsumers onInt(String name, final IntConsumer consumer) {
+        return add(name, new Sink("int", ValueColumn.INT) {
+            @Override
+            void acceptInt(int value, String text) {
+                consumer.accept(value);
+            }
+        });
+    }
+
+    /**
+     * Streams the values of an int or long argument to the consumer.
+     *
+     * @param name     the name of the argument
+     * @param consumer the consumer that receives each value
+     * @return this object, so calls can be chained
+     */
+    public ValueConsumers onLong(String name, final LongConsumer consumer) {
+        return add(name, new Sink("long", ValueColumn.INT, ValueColumn.LONG) {
+            @Override
+            void acceptInt(int value, String text) {
+                consumer.accept(value);
+            }
+
+            @Override
+            void acceptLong(long value, String text) {
+                consumer.accept(value);
+            }
+        });
+    }
+
+    /**
+     * Streams the values of a float or double argument to the consumer.
+     *
+     * @param name     the name of the argument
+     * @param consumer the consumer that receives each value
+     * @return this object, so calls can be chained
+     */
+    public ValueConsumers onDouble(String name, final DoubleConsumer consumer) {
+        return add(name, new Sink("float or double", ValueColumn.FLOAT, ValueColumn.DOUBLE) {
+            @Override
+            void acceptFloat(float value, String text) {
+                consumer.accept(value);
+            }
+
+            @Override
+            void acceptDouble(double value, String text) {
+                consumer.accept(value);
+            }
+        });
+    }
+
+    /**
+     * Streams the values of an argument of any type to the consumer, as the Strings they were parsed from.
+     *
+     * @param name     the name of the argument
+     * @param consumer the consumer that receives each value
+     * @return this object, so calls can be chained
+     */
+    public ValueConsumers onString(String name, final Consumer<String> consumer) {
+        return add(name, new Sink(null) {
+            @Override
+            void acceptText(String text) {
+                consumer.accept(text);
+            }
+        });
+    }
+
+    // region Package Methods
+    /**
+     * Looks up the consumers' arguments in the spec.
+     *
+     * @param spec the spec that is about to parse
+     * @return the sink for each argument ordinal, null where values are collected as usual
+     * @throws IllegalArgumentException if a name is not an argument of the spec or its type does not fit the consumer
+     */
+    Sink[] resolve(ParserSpec spec) {
+        Sink[] resolved = new Sink[spec.getArgumentCount()];
+        for (Map.Entry<String, Sink> entry : sinks.entrySet()) {
+            CompiledArgument arg = spec.resolve(entry.getKey());
+            if (arg == null) {
+                throw new IllegalArgumentException("unknown argument: " + entry.getKey());
+            }
+            Sink sink = entry.getValue();
+            if (!sink.fits(arg.kind)) {
+                throw new IllegalArgumentException("argument " + arg.name + " has type " + arg.type + ", not "
+                        + sink.description);
+            }
+            resolved[arg.ordinal] = sink;
+        }
+        return resolved;
+    }
+    // endregion
+
+    // region Private Methods
+    private ValueConsumers add(String name, Sink sink) {
+        if (name == null) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        sinks.put(name, sink);
+        return this;
+    }
+    // endregion
+
+    /**
+     * Sink adapts one consumer to the values a {@link ValueColumn} stores. Only the methods for the kinds the sink
+     * fits are ever called; the others pass the value on as text.
+     */
+    abstract static class Sink {
+        private final String description;
+        private final int[] kinds;
+
+        Sink(String description, int... kinds) {
+            this.description = description;
+            this.kinds = kinds;
+        }
+
+        boolean fits(int kind) {
+            if (kinds.length == 0) {
+                return true;
+            }
+            for (int k : kinds) {
+                if (k == kind) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void acceptText(String text) {
+        }
+
+        void acceptInt(int value, String text) {
+            acceptText(text);
+        }
+
+        void acceptLong(long value, String text) {
+            acceptText(text);
+        }
+
+        void acceptFloat(float value, String text) {
+            acceptText(text);
+        }
+
+        void acceptDouble(double value, String text) {
+            acceptText(text);
+        }
+
+        void acceptBoolean(boolean value, String text) {
+            acceptText(text);
+        }
+
+        void acceptObject(Object value, String text) {
+            acceptText(text);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package edu.wofford;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ValueRun checks and converts a long run of values for one argument on a fork-join pool.
+ * <p>
+ * The run is cut into chunks of {@link #CHUNK_SIZE} values. Each chunk is checked against the argument's accepted
+ * values and converted into a column of its own, recording the indexes of the values that failed, so the chunks can
+ * be handled by different threads without sharing anything. The spec then merges the chunks in order, which gives
+ * the same values and the same diagnostics, at the same token indexes, as checking the values one by one.
+ */
+final class ValueRun {
+
+    /** The number of values checked by one task. */
+    static final int CHUNK_SIZE = 4096;
+
+    private final CompiledArgument arg;
+    private final String[] values;
+    private final int start;
+    private final int end;
+    private final ValueColumn[] columns;
+    private final int[][] invalid;
+
+    private ValueRun(CompiledArgument arg, String[] values, int start, int count) {
+        this.arg = arg;
+        this.values = values;
+        this.start = start;
+        this.end = start + count;
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.columns = new ValueColumn[chunks];
+        this.invalid = new int[chunks][];
+    }
+
+    /**
+     * Checks and converts the values, running on the current fork-join pool or, from any other thread, on the common
+     * pool.
+     *
+     * @param arg    the argument the values belong to; its converter must be safe to use from several threads
+     * @param values the array holding the values
+     * @param start  the index of the first value
+     * @param count  the number of values
+     * @return the converted run
+     */
+    static ValueRun convert(CompiledArgument arg, String[] values, int start, int count) {
+        ValueRun run = new ValueRun(arg, values, start, count);
+        ConvertTask task = new ConvertTask(run, 0, run.columns.length);
+        if (ForkJoinTask.inForkJoinPool()) {
+            task.invoke();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        return run;
+    }
+
+    int chunkCount() {
+        return columns.length;
+    }
+
+    int chunkStart(int chunk) {
+        return start + chunk * CHUNK_SIZE;
+    }
+
+    int chunkEnd(int chunk) {
+        return Math.min(chunkStart(chunk) + CHUNK_SIZE, end);
+    }
+
+    /**
+     * Gets the converted values of a chunk, leaving out the values that failed.
+     *
+     * @param chunk the index of the chunk
+     * @return the column of converted values
+     */
+    ValueColumn column(int chunk) {
+        return columns[chunk];
+    }
+
+    /**
+     * Gets the indexes of the values of a chunk that failed.
+     *
+     * @param chunk the index of the chunk
+     * @return the indexes in the values array, in increasing order, or null if every value was converted
+     */
+    int[] invalid(int chunk) {
+        return invalid[chunk];
+    }
+
+    // region Private Methods
+    private void convertChunk(int chunk) {
+        int from = chunkStart(chunk);
+        int to = chunkEnd(chunk);
+        ValueColumn column = new ValueColumn(arg.kind, to - from);
+        int[] failed = null;
+        int failedCount = 0;
+        for (int i = from; i < to; i++) {
+            String value = values[i];
+            if ((arg.accepted.isEmpty() || arg.accepted.contains(value)) && arg.converter.store(value, column)) {
+                continue;
+            }
+            if (failed == null) {
+                failed = new int[4];
+            } else if (failedCount == failed.length) {
+                failed = Arrays.copyOf(failed, failedCount * 2);
+            }
+            failed[failedCount++] = i;
+        }
+        columns[chunk] = column;
+        invalid[chunk] = failed == null ? null : Arrays.copyOf(failed, failedCount);
+    }
+
+    /**
+     * ConvertTask converts a range of chunks, splitting it in half until a single chunk is left.
+     */
+    private static final class ConvertTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ValueRun run;
+        private final int from;
+        private final int to;
+
+        ConvertTask(ValueRun run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                run.convertChunk(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ConvertTask(run, from, middle), new ConvertTask(run, middle, to));
+        }
+    }
+    // endregion
+}
@@ -2,11 +2,12 @@ package edu.wofford;
 
 import java.util.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import javax.xml.stream.*;
-import javax.xml.stream.events.*;
-import javax.xml.transform.*;
-import javax.xml.transform.stream.*;
 import java.text.SimpleDateFormat;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * XML is a class containing static functions used by {@link ArgumentParser} to parse and create XML files.
@@ -15,80 +16,164 @@ public class XML {
 
   /**
    * Reads argument information from an XML file and adds them to the ArgumentParser object's known arguments.
+   * Constraints between named arguments are read from requires, oneof, atleastone and atmost elements, which name
+   * their arguments without the leading "--":
+   * <pre>
+   * {@code
+   * <requires><argument>output</argument><needs>format</needs></requires>
+   * <oneof><member>json</member><member>xml</member></oneof>
+   * <atmost><count>2</count><member>fast</member><member>small</member><member>safe</member></atmost>
+   * }
+   * </pre>
+   *
+   * If the parser uses the lightweight reader (see {@link ArgumentParser#setLightweightXML(boolean)}), the file is
+   * read into a byte buffer and handed to it first.
    *
    * @param filename the name of the file to read from
    * @param parser   ArgumentParser object that we want to give the argument information to
    */
   public static void parseXML(String filename, ArgumentParser parser) {
-    int positionalCount = 0;
-    String[] fields = { "name", "shortname", "type", "position", "default", "values", "required", "mutex", "accepted" };
-    Set<String> set = new HashSet<String>(Arrays.asList(fields));
-    Set<String> accepted = new HashSet<String>();
-    Set<String> mutex = new HashSet<String>();
-    Map<Integer, Argument> posMap = new HashMap<Integer, Argument>();
-    Map<String, String> attMap = new HashMap<String, String>();
-    // for (int i = 0; i < fields.length - 3; i++) {
-    //   attMap.put(fields[i], "");
-    // }
-    // attMap.put("required", "false");
-    // attMap.put("values", "1");
+    Definitions definitions;
+    if (parser.usesLightweightXML()) {
+      try {
+        definitions = readDefinitions(Files.readAllBytes(Paths.get(filename)), true);
+      } catch (IOException | InvalidPathException e) {
+        throw new BadXMLException();
+      }
+    } else {
+      try (Reader reader = new FileReader(filename)) {
+        definitions = readDefinitions(reader);
+      } catch (IOException e) {
+        throw new BadXMLException();
+      }
+    }
+    definitions.applyTo(parser);
+  }
 
-    try {
-      XMLInputFactory factory = XMLInputFactory.newInstance();
-      XMLEventReader eventReader = factory.createXMLEventReader(new FileReader(filename));
-      while (eventReader.hasNext()) {
-        XMLEvent event = eventReader.nextEvent();
-        switch (event.getEventType()) {
-        case XMLStreamConstants.START_ELEMENT:
-          StartElement startElement = event.asStartElement();
-          String qName = startElement.getName().getLocalPart().toLowerCase();
-          if (qName.equals("positional") || qName.equals("named")) {
-            accepted.clear();
-            mutex.clear();
-            for (int i = 0; i < fields.length - 3; i++) {
-              attMap.put(fields[i], "");
-            }
-            attMap.put("required", "false");
-            attMap.put("values", "1");
+  /**
+   * Reads argument information from an XML file and adds them to the ArgumentParser object's known arguments. Unlike
+   * {@link #parseXML(String, ArgumentParser)}, the file is decoded as its XML declaration says, or as UTF-8 if it has
+   * none.
+   *
+   * @param file   the file to read from
+   * @param parser ArgumentParser object that we want to give the argument information to
+   */
+  public static void parseXML(Path file, ArgumentParser parser) {
+    Definitions definitions;
+    if (parser.usesLightweightXML()) {
+      try {
+        definitions = readStream(Files.readAllBytes(file), true);
+      } catch (IOException e) {
+        throw new BadXMLException();
+      }
+    } else {
+      try (InputStream in = Files.newInputStream(file)) {
+        definitions = readDefinitions(in);
+      } catch (IOException e) {
+        throw new BadXMLException();
+      }
+    }
+    definitions.applyTo(parser);
+  }
 
-            // attMap.put("required", "false");
-            // attMap.put("values", "1");
-          }
-          if (set.contains(qName)) {
-            if (qName.equals("required")) {
-              attMap.put("required", "true");
-            } else {
-              handleCharacters(qName, eventReader.nextEvent(), attMap, accepted, mutex);
-            }
-          }
-          break;
-        case XMLStreamConstants.END_ELEMENT:
-          EndElement endElement = event.asEndElement();
-          if (endElement.getName().getLocalPart().equalsIgnoreCase("positional")
-              || endElement.getName().getLocalPart().equalsIgnoreCase("named")) {
-            if (endElement.getName().getLocalPart().equalsIgnoreCase("positional")) {
-              positionalCount++;
-              setPositionalFromXML(attMap, posMap, accepted);
-            } else if (endElement.getName().getLocalPart().equalsIgnoreCase("named")) {
-              setNamedFromXML(attMap, accepted, mutex, parser);
-            }
-          }
-          break;
-        }
+  /**
+   * Reads argument information from a stream of XML and adds them to the ArgumentParser object's known arguments.
+   * The stream is decoded as its XML declaration says, or as UTF-8 if it has none, and is not closed.
+   *
+   * @param in     the stream to read from
+   * @param parser ArgumentParser object that we want to give the argument information to
+   */
+  public static void parseXML(InputStream in, ArgumentParser parser) {
+    Definitions definitions;
+    if (parser.usesLightweightXML()) {
+      try {
+        definitions = readStream(readFully(in), true);
+      } catch (IOException e) {
+        throw new BadXMLException();
       }
-      for (int i = 1; i < positionalCount + 1; i++) {
-        Argument arg = posMap.get(i);
-        parser.setArgument(arg);
+    } else {
+      definitions = readDefinitions(in);
+    }
+    definitions.applyTo(parser);
+  }
+
+  /**
+   * Reads argument information from XML text and adds them to the ArgumentParser object's known arguments. The text
+   * is always read with StAX, and the reader is not closed.
+   *
+   * @param reader the text to read from
+   * @param parser ArgumentParser object that we want to give the argument information to
+   */
+  public static void parseXML(Reader reader, ArgumentParser parser) {
+    readDefinitions(reader).applyTo(parser);
+  }
+
+  /**
+   * Reads argument information from an XML resource on the class path and adds them to the ArgumentParser object's
+   * known arguments. The resource is looked up with the current thread's context class loader, or with the loader of
+   * this library if there is none, and is decoded as its XML declaration says.
+   *
+   * @param resource the name of the resource, such as "com/example/tool.xml"
+   * @param parser   ArgumentParser object that we want to give the argument information to
+   */
+  public static void parseXMLResource(String resource, ArgumentParser parser) {
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    if (loader == null) {
+      loader = XML.class.getClassLoader();
+    }
+    try (InputStream in = loader.getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new BadXMLException();
       }
-    } catch (FileNotFoundException | XMLStreamException e) {
+      parseXML(in, parser);
+    } catch (IOException e) {
       throw new BadXMLException();
     }
   }
 
+  /**
+   * Reads argument information from an XML file and adds them to the ArgumentParser object's known arguments, using
+   * a binary copy of the definitions kept in the cache directory when the file has not changed since it was cached.
+   * The cache directory is created if needed; if it cannot be written, the XML file is read every time.
+   *
+   * @param filename       the name of the file to read from
+   * @param cacheDirectory the directory holding cached definitions
+   * @param parser         ArgumentParser object that we want to give the argument information to
+   */
+  public static void parseXML(String filename, Path cacheDirectory, ArgumentParser parser) {
+    Path path;
+    try {
+      path = Paths.get(filename);
+    } catch (InvalidPathException e) {
+      throw new BadXMLException();
+    }
+    DefinitionCache.load(path, cacheDirectory, parser.usesLightweightXML()).applyTo(parser);
+  }
+
+  /**
+   * Reads the argument information of an XML definition held in memory without adding it to a parser. The bytes are
+   * decoded with the default charset, as a FileReader would decode them.
+   *
+   * @param content     the bytes of the XML document
+   * @param lightweight true to try the lightweight reader before StAX
+   * @return the definitions read
+   * @throws BadXMLException if the XML is not a valid definition
+   */
+  static Definitions readDefinitions(byte[] content, boolean lightweight) {
+    if (lightweight) {
+      Definitions definitions = readLightweight(content, false);
+      if (definitions != null) {
+        return definitions;
+      }
+    }
+    return readDefinitions(new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset()));
+  }
+
   /**
    * Creates a string that contains all of the parser's argument information, formatted as XML.
    *
-   * @param createFile     if true, XML string is written to a newly created file in the current directory
+   * @param createFile     if true, the information is also written, indented, to a newly created file in the current
+   *                       directory
    * @param positionalArgs list of the parser's positional arguments
    * @param namedArgs      list of the parser's named arguments
    * @param argumentMap    map whose keys are the names of the parser's arguments, values are Argument objects
@@ -96,40 +181,16 @@ public class XML {
    */
   public static String createXML(boolean createFile, List<String> positionalArgs, List<String> namedArgs,
       Map<String, Argument> argumentMap) {
-    try {
-      StringWriter stringWriter = new StringWriter();
-      XMLOutputFactory xMLOutputFactory = XMLOutputFactory.newInstance();
-      XMLStreamWriter xmlStreamWriter = xMLOutputFactory.createXMLStreamWriter(stringWriter);
-      int position = 1;
-      xmlStreamWriter.writeStartDocument();
-      xmlStreamWriter.writeStartElement("arguments");
-      for (String name : positionalArgs) {
-        writePositionalXML(name, xmlStreamWriter, position, argumentMap);
-        position++;
-      }
-      for (String name : namedArgs) {
-        writeNamedXML(name, xmlStreamWriter, argumentMap);
-      }
-      xmlStreamWriter.writeEndElement();
-      xmlStreamWriter.writeEndDocument();
-      xmlStreamWriter.flush();
-      xmlStreamWriter.close();
-      String xmlString = stringWriter.getBuffer().toString().replace("<?xml version=\"1.0\" ?>", "");
-      stringWriter.close();
-      if (createFile) {
-        createXMLFile(xmlString);
-      }
-      return xmlString;
-    } catch (IOException | XMLStreamException e) {
-      throw new BadXMLException();
-    }
+    return createXML(createFile, false, positionalArgs, namedArgs, argumentMap);
   }
 
   /**
    * Creates a string that contains all of the parser's argument information, formatted as XML.
    *
-   * @param createFile     if true, XML string is written to a newly created file in the current directory
-   * @param keepTemp       if true, newly created file's name is tmp.xml
+   * @param createFile     if true, the information is also written, indented, to a newly created file in the current
+   *                       directory, named after the current time; if another export already created that file, a
+   *                       counter is added to the name, so concurrent exports never overwrite each other
+   * @param keepTemp       if true, newly created file's name is stripped_tmp.xml
    * @param positionalArgs list of the parser's positional arguments
    * @param namedArgs      list of the parser's named arguments
    * @param argumentMap    map whose keys are the names of the parser's arguments, values are Argument objects
@@ -137,264 +198,230 @@ public class XML {
    */
   public static String createXML(boolean createFile, boolean keepTemp, List<String> positionalArgs,
       List<String> namedArgs, Map<String, Argument> argumentMap) {
+    StringWriter stringWriter = new StringWriter();
     try {
-      StringWriter stringWriter = new StringWriter();
-      XMLOutputFactory xMLOutputFactory = XMLOutputFactory.newInstance();
-      XMLStreamWriter xmlStreamWriter = xMLOutputFactory.createXMLStreamWriter(stringWriter);
-      int position = 1;
-      xmlStreamWriter.writeStartDocument();
-      xmlStreamWriter.writeStartElement("arguments");
-      for (String name : positionalArgs) {
-        writePositionalXML(name, xmlStreamWriter, position, argumentMap);
-        position++;
-      }
-      for (String name : namedArgs) {
-        writeNamedXML(name, xmlStreamWriter, argumentMap);
-      }
-      xmlStreamWriter.writeEndElement();
-      xmlStreamWriter.writeEndDocument();
-      xmlStreamWriter.flush();
-      xmlStreamWriter.close();
-      String xmlString = stringWriter.getBuffer().toString().replace("<?xml version=\"1.0\" ?>", "");
-      stringWriter.close();
-      if (createFile) {
-        createXMLFile(xmlString, keepTemp);
+      new DefinitionWriter(stringWriter).write(positionalArgs, namedArgs, argumentMap);
+    } catch (IOException e) {
+      throw new BadXMLException();
+    }
+    if (keepTemp && createFile) {
+      writeFile(Paths.get("stripped_tmp.xml"), Charset.defaultCharset(), positionalArgs, namedArgs, argumentMap);
+    } else if (createFile) {
+      Path file = claimTimestampedFile();
+      try {
+        writeFile(file, Charset.defaultCharset(), positionalArgs, namedArgs, argumentMap);
+      } catch (BadXMLException e) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+          // the export has already failed, and an empty file is harmless
+        }
+        throw e;
       }
-      return xmlString;
-    } catch (IOException | XMLStreamException e) {
+    }
+    return stringWriter.toString();
+  }
+
+  /**
+   * Writes all of the parser's argument information as indented XML, in the layout of the files made by
+   * {@link #createXML(boolean, boolean, List, List, Map)}, encoded as UTF-8. The document is written in a single pass
+   * and the stream is flushed but not closed.
+   *
+   * @param out            the stream to write to
+   * @param positionalArgs list of the parser's positional arguments
+   * @param namedArgs      list of the parser's named arguments
+   * @param argumentMap    map whose keys are the names of the parser's arguments, values are Argument objects
+   */
+  public static void writeXML(OutputStream out, List<String> positionalArgs, List<String> namedArgs,
+      Map<String, Argument> argumentMap) {
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      new DefinitionWriter(writer, StandardCharsets.UTF_8).write(positionalArgs, namedArgs, argumentMap);
+      writer.flush();
+    } catch (IOException e) {
       throw new BadXMLException();
     }
   }
 
+  /**
+   * Writes all of the parser's argument information as indented XML to a file, encoded as UTF-8. The document is
+   * written to a new temporary file in the same directory, which is then moved over the target atomically where the
+   * file system allows it, so the target never holds a partly written document. Any number of exports may run at
+   * once, to the same target or to different ones; each writes its own temporary file, and a target written by
+   * several of them ends up holding one of their documents, complete.
+   *
+   * @param file           the file to write
+   * @param positionalArgs list of the parser's positional arguments
+   * @param namedArgs      list of the parser's named arguments
+   * @param argumentMap    map whose keys are the names of the parser's arguments, values are Argument objects
+   */
+  public static void writeXML(Path file, List<String> positionalArgs, List<String> namedArgs,
+      Map<String, Argument> argumentMap) {
+    writeFile(file, StandardCharsets.UTF_8, positionalArgs, namedArgs, argumentMap);
+  }
+
   //region Private Methods
-  private static void replaceBadXML(String timeStamp) {
-    String oldFileName = "tmp.xml";
-    String newFileName = "xml-" + timeStamp + ".xml";
-    BufferedReader br = null;
-    BufferedWriter bw = null;
-    try {
-      br = new BufferedReader(new FileReader(oldFileName));
-      bw = new BufferedWriter(new FileWriter(newFileName));
-      String line;
-      while ((line = br.readLine()) != null) {
-        if (line.contains("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"))
-          line = line.replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", "");
-        bw.write(line + "\n");
-      }
-      if (br != null) {
-        br.close();
-      }
-      if (bw != null) {
-        bw.close();
+  /**
+   * Holds the StAX input factory, which is created the first time a document is read with StAX, so that a program
+   * using only the lightweight reader never loads it. The factory coalesces adjacent text, so a value holding a
+   * character or entity reference arrives as a single piece. It is never reconfigured, so it may be shared by every
+   * thread.
+   */
+  private static final class Input {
+    static final XMLInputFactory FACTORY = newFactory();
+
+    private static XMLInputFactory newFactory() {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      return factory;
+    }
+  }
+
+  private static Definitions readStream(byte[] content, boolean lightweight) {
+    if (lightweight) {
+      Definitions definitions = readLightweight(content, true);
+      if (definitions != null) {
+        return definitions;
       }
-      File oldFile = new File(oldFileName);
-      oldFile.delete();
-    } catch (IOException e) {
+    }
+    return readDefinitions(new ByteArrayInputStream(content));
+  }
+
+  private static Definitions readLightweight(byte[] content, boolean declaredEncoding) {
+    try {
+      return DefinitionReader.read(ByteBuffer.wrap(content), declaredEncoding);
+    } catch (IllegalArgumentException e) {
       throw new BadXMLException();
     }
   }
 
-  private static void replaceBadXML() {
-    String oldFileName = "tmp.xml";
-    String newFileName = "stripped_tmp.xml";
-    BufferedReader br = null;
-    BufferedWriter bw = null;
+  private static Definitions readDefinitions(Reader source) {
     try {
-      br = new BufferedReader(new FileReader(oldFileName));
-      bw = new BufferedWriter(new FileWriter(newFileName));
-      String line;
-      while ((line = br.readLine()) != null) {
-        if (line.contains("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"))
-          line = line.replace("<?xml version=\"1.0\" encoding=\"UTF-8\"?>", "");
-        bw.write(line + "\n");
-      }
-      if (br != null) {
-        br.close();
-      }
-      if (bw != null) {
-        bw.close();
-      }
-      File oldFile = new File(oldFileName);
-      oldFile.delete();
-    } catch (IOException e) {
+      return readDefinitions(Input.FACTORY.createXMLStreamReader(source));
+    } catch (XMLStreamException e) {
       throw new BadXMLException();
     }
   }
 
-  private static void writePositionalXML(String name, XMLStreamWriter writer, int position,
-      Map<String, Argument> argumentMap) {
+  private static Definitions readDefinitions(InputStream source) {
     try {
-      Argument arg = argumentMap.get(name);
-      writer.writeStartElement("positional");
-      writer.writeStartElement("name");
-      writer.writeCharacters(arg.getName());
-      writer.writeEndElement();
-      writer.writeStartElement("type");
-      writer.writeCharacters(arg.getType());
-      writer.writeEndElement();
-      writer.writeStartElement("position");
-      writer.writeCharacters(Integer.toString(position));
-      writer.writeEndElement();
-      if (arg.getNumberOfValuesExpected() != 1) {
-        writer.writeStartElement("values");
-        writer.writeCharacters(Integer.toString(arg.getNumberOfValuesExpected()));
-        writer.writeEndElement();
-      }
-      if (!arg.getAcceptedValues().isEmpty()) {
-        for (String value : arg.getAcceptedValues()) {
-          writer.writeStartElement("accepted");
-          writer.writeCharacters(value);
-          writer.writeEndElement();
-        }
-      }
-      writer.writeEndElement();
+      return readDefinitions(Input.FACTORY.createXMLStreamReader(source));
     } catch (XMLStreamException e) {
       throw new BadXMLException();
     }
   }
 
-  private static void writeNamedXML(String name, XMLStreamWriter writer, Map<String, Argument> argumentMap) {
-    NamedArgument arg = (NamedArgument) argumentMap.get(name);
+  private static Definitions readDefinitions(XMLStreamReader reader) {
+    DefinitionBuilder builder = new DefinitionBuilder();
     try {
-      writer.writeStartElement("named");
-      writer.writeStartElement("name");
-      writer.writeCharacters(arg.getName().substring(2));
-      writer.writeEndElement();
-      if (!arg.getNicknames().equals("-")) {
-        for (int i = 1; i < arg.getNicknames().length(); i++) {
-          writer.writeStartElement("shortname");
-          writer.writeCharacters(Character.toString(arg.getNicknames().charAt(i)));
-          writer.writeEndElement();
-        }
-      }
-      writer.writeStartElement("type");
-      writer.writeCharacters(arg.getType());
-      writer.writeEndElement();
-      if (arg.isRequired()) {
-        writer.writeStartElement("required");
-        writer.writeEndElement();
-      } else {
-        writer.writeStartElement("default");
-        writer.writeCharacters(arg.getDefault());
-        writer.writeEndElement();
-      }
-      if (arg.hasMutualExclusiveArgs()) {
-        for (Map.Entry<String, Argument> pair : argumentMap.entrySet()) {
-          if (pair.getKey().startsWith("--") && !pair.getKey().equals(arg.getName())) {
-            NamedArgument namedArg = (NamedArgument) pair.getValue();
-            if (namedArg.hasMutualExclusiveArgs() && namedArg.isMutuallyExclusive(arg)) {
-              writer.writeStartElement("mutex");
-              writer.writeCharacters(namedArg.getName().substring(2));
-              writer.writeEndElement();
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          switch (builder.startElement(reader.getLocalName())) {
+          case DefinitionBuilder.TEXT:
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+              builder.text("");
+              builder.endElement(reader.getLocalName());
+            } else if (isText(event)) {
+              builder.text(reader.getText());
+            } else {
+              throw new BadXMLException();
             }
+            break;
+          case DefinitionBuilder.ELEMENT_TEXT:
+            builder.elementText(reader.getElementText());
+            break;
           }
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          builder.endElement(reader.getLocalName());
+          break;
         }
       }
-      if (!arg.getAcceptedValues().isEmpty()) {
-        for (String value : arg.getAcceptedValues()) {
-          writer.writeStartElement("accepted");
-          writer.writeCharacters(value);
-          writer.writeEndElement();
-        }
-      }
-      writer.writeEndElement();
-    } catch (XMLStreamException e) {
+      return builder.finish();
+    } catch (XMLStreamException | IllegalArgumentException e) {
       throw new BadXMLException();
+    } finally {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // the reader does not own its source, so there is nothing left to release
+      }
     }
   }
 
-  private static void createXMLFile(String xml) {
+  private static boolean isText(int event) {
+    return event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+        || event == XMLStreamConstants.SPACE;
+  }
+
+  private static Path claimTimestampedFile() {
+    String name = "xml-" + new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
     try {
-      Source xmlInput = new StreamSource(new StringReader(xml));
-      StreamResult xmlOutput = new StreamResult(new StringWriter());
-      Transformer transformer = TransformerFactory.newInstance().newTransformer();
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-      transformer.transform(xmlInput, xmlOutput);
-      String timeStamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
-      PrintWriter out = new PrintWriter("tmp.xml");
-      out.print(xmlOutput.getWriter().toString());
-      out.close();
-      replaceBadXML(timeStamp);
-    } catch (TransformerException | FileNotFoundException e) {
+      for (int i = 1; ; i++) {
+        Path file = Paths.get(i == 1 ? name + ".xml" : name + "-" + i + ".xml");
+        try {
+          return Files.createFile(file);
+        } catch (FileAlreadyExistsException e) {
+          // another export made this file within the same second; try the next name
+        }
+      }
+    } catch (IOException e) {
       throw new BadXMLException();
     }
   }
 
-  private static void createXMLFile(String xml, boolean keepTemp) {
+  private static void writeFile(Path target, Charset charset, List<String> positionalArgs, List<String> namedArgs,
+      Map<String, Argument> argumentMap) {
+    Path temp = null;
     try {
-      Source xmlInput = new StreamSource(new StringReader(xml));
-      StreamResult xmlOutput = new StreamResult(new StringWriter());
-      Transformer transformer = TransformerFactory.newInstance().newTransformer();
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-      transformer.transform(xmlInput, xmlOutput);
-      String timeStamp = new SimpleDateFormat("yyyy.MM.dd.HH.mm.ss").format(new Date());
-      PrintWriter out = new PrintWriter("tmp.xml");
-      out.print(xmlOutput.getWriter().toString());
-      out.close();
-      if (keepTemp) {
-        replaceBadXML();
-      } else {
-        replaceBadXML(timeStamp);
+      Path directory = target.toAbsolutePath().getParent();
+      Writer writer;
+      while (true) {
+        temp = directory.resolve("." + target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current()
+            .nextLong()) + ".tmp");
+        try {
+          writer = Files.newBufferedWriter(temp, charset, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+          break;
+        } catch (FileAlreadyExistsException e) {
+          // another export picked the same name; try a different one
+        }
       }
-    } catch (TransformerException | FileNotFoundException e) {
+      try {
+        new DefinitionWriter(writer, charset).write(positionalArgs, namedArgs, argumentMap);
+      } finally {
+        writer.close();
+      }
+      try {
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      temp = null;
+    } catch (IOException | InvalidPathException e) {
       throw new BadXMLException();
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          // the export has already failed, and a stray temporary file is harmless
+        }
+      }
     }
   }
 
-  private static void handleCharacters(String name, XMLEvent event, Map<String, String> attMap, Set<String> acc,
-      Set<String> mutex) {
-    Characters characters = event.asCharacters();
-    switch (name) {
-    case "accepted":
-      acc.add(characters.getData());
-      break;
-    case "mutex":
-      mutex.add("--" + characters.getData());
-      break;
-    default:
-      attMap.put(name, characters.getData());
-      break;
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int count;
+    while ((count = in.read(chunk)) != -1) {
+      out.write(chunk, 0, count);
     }
+    return out.toByteArray();
   }
 
-  private static void setPositionalFromXML(Map<String, String> attMap, Map<Integer, Argument> posMap, Set<String> acc) {
-    Argument arg = new Argument(attMap.get("name"));
-    arg.setType(attMap.get("type"));
-    arg.setNumberOfValuesExpected(Integer.parseInt(attMap.get("values")));
-    String[] array = acc.toArray(new String[acc.size()]);
-    arg.addAcceptedValues(array);
-    posMap.put(Integer.parseInt(attMap.get("position")), arg);
-  }
-
-  private static void setNamedFromXML(Map<String, String> attMap, Set<String> acc, Set<String> mutex,
-      ArgumentParser parser) {
-    NamedArgument arg;
-    if (attMap.get("required").equals("true")) {
-      arg = new NamedArgument("--" + attMap.get("name"));
-    } else {
-      arg = new NamedArgument("--" + attMap.get("name"), attMap.get("default"));
-    }
-    arg.setType(attMap.get("type"));
-    String[] accepted = acc.toArray(new String[acc.size()]);
-    arg.addAcceptedValues(accepted);
-    if (!mutex.isEmpty()) {
-      String[] mutexes = mutex.toArray(new String[mutex.size()]);
-      for (int i = 0; i < mutexes.length; i++) {
-        arg.addMutuallyExclusiveArg(mutexes[i]);
-      }
-    }
-    if (attMap.containsKey("shortname")) {
-      if (!attMap.get("shortname").equals("")) {
-        parser.setNickname(arg, "-" + attMap.get("shortname"));
-      } else {
-        parser.setArgument(arg);
-      }
-    } else {
-      parser.setArgument(arg);
-    }
-  }
   //endregion
 
 }
@@ -846,4 +846,51 @@ public class ArgumentParserTest {
 
     assertEquals("blue", parser.getValue("--color"));
   }
+
+  @Test
+  public void testDefinitionChangesAfterParsingAreSeen() {
+    parser.setArguments(argumentNames);
+    NamedArgument argType = new NamedArgument("--type", "box");
+    parser.setArgument(argType);
+    parser.setArgumentValues(new String[] { "7", "5", "2", "--type", "cone" });
+    assertEquals("cone", parser.getValue("--type"));
+
+    argType.addAcceptedValue("box");
+    try {
+      parser.setArgumentValues(new String[] { "7", "5", "2", "--type", "cone" });
+      fail("expected UnacceptedValueException");
+    } catch (UnacceptedValueException e) {
+      assertEquals("cone", e.getValue());
+    }
+
+    parser.setArgumentType("width", "int");
+    try {
+      parser.setArgumentValues(new String[] { "7", "5.5", "2" });
+      fail("expected InvalidTypeException");
+    } catch (InvalidTypeException e) {
+      assertEquals("width", e.getArgumentName());
+    }
+
+    parser.setFlags("-v");
+    parser.setArgumentValues(new String[] { "7", "5", "2", "-v" });
+    assertEquals("true", parser.getValue("-v"));
+  }
+
+  @Test
+  public void testPrefixOfLongOptionIsNotAnAbbreviation() {
+    parser.setArgument("x");
+    parser.setArgument(new NamedArgument("--type", "box"));
+    parser.setArgumentValues(new String[] { "--ty", "5" });
+    assertEquals("5", parser.getValue("x"));
+    assertEquals("box", parser.getValue("--type"));
+
+    ArgumentParser both = new ArgumentParser("VolumeCalculator");
+    both.setArgument("x");
+    both.setArgument(new NamedArgument("--type", "box"));
+    both.setArgument(new NamedArgument("--types", "all"));
+    both.setArgumentValues(new String[] { "--typ", "5" });
+    assertEquals("5", both.getValue("x"));
+    assertEquals("box", both.getValue("--type"));
+    assertEquals("all", both.getValue("--types"));
+  }
 }
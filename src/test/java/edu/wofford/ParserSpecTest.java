@@ -0,0 +1,1434 @@
+package edu.wofford;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class ParserSpecTest {
+  private ArgumentParser parser;
+  String[] argumentNames = { "length", "width", "height" };
+
+  @Before
+  public void setup() {
+    parser = new ArgumentParser("VolumeCalculator");
+    parser.setArguments(argumentNames);
+    NamedArgument typeArg = new NamedArgument("--type", "box");
+    typeArg.setType("string");
+    parser.setNickname(typeArg, "-t");
+  }
+
+  @Test
+  public void testParseReturnsValues() {
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "-t", "pyramid" });
+    assertEquals("7", result.getValue("length"));
+    assertEquals("pyramid", result.getValue("--type"));
+    assertEquals("pyramid", result.getValue("-t"));
+    assertTrue(result.isPresent("--type"));
+  }
+
+  @Test
+  public void testDefaultValueWhenNotProvided() {
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2" });
+    assertEquals("box", result.getValue("--type"));
+    assertEquals(Arrays.asList("box"), result.getValues("--type"));
+    assertFalse(result.isPresent("--type"));
+  }
+
+  @Test
+  public void testValuesDoNotPileUpAcrossParses() {
+    ParserSpec spec = parser.compile();
+    spec.parse(new String[] { "7", "5", "2", "--type", "pyramid" });
+    ParseResult second = spec.parse(new String[] { "1", "2", "3" });
+    assertEquals("box", second.getValue("--type"));
+    assertEquals(Arrays.asList("1"), second.getValues("length"));
+  }
+
+  @Test
+  public void testSpecIgnoresLaterChangesToParser() {
+    ParserSpec spec = parser.compile();
+    parser.setArgument("depth");
+    parser.setArgumentType("length", "int");
+    ParseResult result = spec.parse(new String[] { "7.5", "5", "2" });
+    assertEquals("7.5", result.getValue("length"));
+    assertEquals(Arrays.asList("length", "width", "height", "--type"), spec.getArgumentNames());
+  }
+
+  @Test
+  public void testParseErrorMessageMatchesParser() {
+    try {
+      parser.compile().parse(new String[] { "7", "5", "2", "43" });
+      fail();
+    } catch (UnrecognizedArgumentException e) {
+      String message = "usage: java VolumeCalculator length width height\nVolumeCalculator.java: error: unrecognized arguments: 43";
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSpecSharedBetweenThreads() throws Exception {
+    final ParserSpec spec = parser.compile();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    List<Future<String>> futures = new ArrayList<Future<String>>();
+    for (int i = 0; i < 200; i++) {
+      final String value = Integer.toString(i);
+      futures.add(pool.submit(new Callable<String>() {
+        public String call() {
+          return spec.parse(new String[] { value, "5", "2", "-t", value }).getValue("--type");
+        }
+      }));
+    }
+    for (int i = 0; i < 200; i++) {
+      assertEquals(Integer.toString(i), futures.get(i).get());
+    }
+    pool.shutdown();
+  }
+
+  @Test
+  public void testKeyReadsValue() {
+    ParserSpec spec = parser.compile();
+    ArgumentKey<String> length = spec.key("length");
+    ArgumentKey<String> type = spec.key("-t");
+    ParseResult result = spec.parse(new String[] { "7", "5", "2", "--type", "pyramid" });
+    assertEquals("7", result.get(length));
+    assertEquals("pyramid", result.get(type));
+    assertEquals("--type", type.getName());
+    assertSame(spec.key("--type"), type);
+  }
+
+  @Test
+  public void testKeyReadsDefault() {
+    ParserSpec spec = parser.compile();
+    ParseResult result = spec.parse(new String[] { "7", "5", "2" });
+    assertEquals("box", result.get(spec.key("--type")));
+    assertFalse(result.isPresent(spec.key("--type")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeyFromOtherSpecIsRejected() {
+    ArgumentKey<String> length = parser.compile().key("length");
+    parser.compile().parse(new String[] { "7", "5", "2" }).get(length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownKey() {
+    parser.compile().key("--depth");
+  }
+
+  @Test
+  public void testLongOptionWithAttachedValue() {
+    ParseResult result = parser.compile().parse(new String[] { "7", "--type=pyramid", "5", "2" });
+    assertEquals("pyramid", result.getValue("--type"));
+    assertEquals("5", result.getValue("width"));
+  }
+
+  @Test
+  public void testShortOptionWithAttachedValue() {
+    NamedArgument digits = new NamedArgument("--digits", "4");
+    digits.setType("int");
+    parser.setNickname(digits, "-d");
+    parser.setFlags("-a");
+    ParserSpec spec = parser.compile();
+    assertEquals("5", spec.parse(new String[] { "7", "5", "2", "-d5" }).getValue("--digits"));
+    ParseResult bundled = spec.parse(new String[] { "7", "5", "2", "-ad", "6" });
+    assertEquals("6", bundled.getValue("--digits"));
+    assertEquals("true", bundled.getValue("-a"));
+  }
+
+  @Test
+  public void testOptionValueMayStartWithDash() {
+    NamedArgument offset = new NamedArgument("--offset", "0");
+    offset.setType("int");
+    parser.setArgument(offset);
+    assertEquals("-3", parser.compile().parse(new String[] { "--offset", "-3", "7", "5", "2" }).getValue("--offset"));
+  }
+
+  @Test
+  public void testMissingOptionValue() {
+    try {
+      parser.compile().parse(new String[] { "7", "5", "2", "--type" });
+      fail();
+    } catch (NotEnoughValuesException e) {
+      String message = "usage: java VolumeCalculator length width height\nVolumeCalculator.java: error: argument --type requires 1 values";
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  @Test
+  public void testParseDoesNotModifyValues() {
+    String[] values = { "7", "--type=pyramid", "5", "2" };
+    parser.compile().parse(values);
+    assertArrayEquals(new String[] { "7", "--type=pyramid", "5", "2" }, values);
+  }
+
+  @Test
+  public void testBundledFlagsAndNicknames() {
+    parser.setFlags("-ab");
+    NamedArgument verbose = new NamedArgument("--verbose", "false");
+    verbose.setType("boolean");
+    parser.setNickname(verbose, "-v\u00e9");
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "-b\u00e9a" });
+    assertEquals("true", result.getValue("-a"));
+    assertEquals("true", result.getValue("-b"));
+    assertEquals("true", result.getValue("--verbose"));
+    assertEquals("true", result.getValue("-v"));
+  }
+
+  @Test
+  public void testUnknownCharacterInBundle() {
+    parser.setFlags("-ab");
+    try {
+      parser.compile().parse(new String[] { "7", "5", "2", "-abz" });
+      fail();
+    } catch (UnrecognizedArgumentException e) {
+      String message = "usage: java VolumeCalculator length width height\nVolumeCalculator.java: error: unrecognized flag: -z";
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  private void addVerbosityOptions() {
+    NamedArgument verbose = new NamedArgument("--verbose", "false");
+    verbose.setType("boolean");
+    parser.setArgument(verbose);
+    NamedArgument version = new NamedArgument("--version", "false");
+    version.setType("boolean");
+    parser.setArgument(version);
+    NamedArgument ver = new NamedArgument("--ver", "1");
+    ver.setType("int");
+    parser.setArgument(ver);
+  }
+
+  @Test
+  public void testUniquePrefixSelectsOption() {
+    addVerbosityOptions();
+    parser.setAllowAbbreviations(true);
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "--verb", "--ty=pyramid" });
+    assertEquals("true", result.getValue("--verbose"));
+    assertEquals("false", result.getValue("--version"));
+    assertEquals("pyramid", result.getValue("--type"));
+  }
+
+  @Test
+  public void testExactNameWinsOverLongerOption() {
+    addVerbosityOptions();
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "--ver", "3" });
+    assertEquals("3", result.getValue("--ver"));
+    assertEquals("false", result.getValue("--verbose"));
+  }
+
+  @Test
+  public void testAmbiguousPrefix() {
+    addVerbosityOptions();
+    parser.setAllowAbbreviations(true);
+    try {
+      parser.compile().parse(new String[] { "7", "5", "2", "--ve" });
+      fail();
+    } catch (UnrecognizedArgumentException e) {
+      String message = "usage: java VolumeCalculator length width height\nVolumeCalculator.java: error: ambiguous option: --ve could match --ver, --verbose, --version";
+      assertEquals(message, e.getMessage());
+    }
+  }
+
+  @Test
+  public void testAbbreviationsAreOffByDefault() {
+    addVerbosityOptions();
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "--verb", "--ve" });
+    assertEquals("false", result.getValue("--verbose"));
+    assertEquals("false", result.getValue("--version"));
+  }
+
+  @Test
+  public void testAbbreviationsCanBeDisabled() {
+    addVerbosityOptions();
+    parser.setAllowAbbreviations(true);
+    parser.setAllowAbbreviations(false);
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "--verb" });
+    assertEquals("false", result.getValue("--verbose"));
+  }
+
+  @Test
+  public void testManyOptions() {
+    for (int i = 0; i < 5000; i++) {
+      parser.setArgument(new NamedArgument("--option" + i, Integer.toString(i)));
+    }
+    ParseResult result = parser.compile().parse(new String[] { "7", "5", "2", "--option4321", "x", "--option49=y" });
+    assertEquals("x", result.getValue("--option4321"));
+    assertEquals("y", result.getValue("--option49"));
+    assertEquals("4322", result.getValue("--option4322"));
+  }
+
+  @Test
+  public void testTypedValues() {
+    ArgumentParser typed = new ArgumentParser("SumNumbers");
+    Argument numbers = new Argument("numbers");
+    numbers.setType("float");
+    numbers.setNumberOfValuesExpected(3);
+    typed.setArgument(numbers);
+    NamedArgument count = new NamedArgument("--count", "2");
+    count.setType("int");
+    typed.setArgument(count);
+    NamedArgument add = new NamedArgument("--add", "false");
+    add.setType("boolean");
+    typed.setNickname(add, "-a");
+    ParserSpec spec = typed.compile();
+    ParseResult result = spec.parse(new String[] { "1.5", "2", "-3e1", "--count", "7", "-a" });
+    assertArrayEquals(new float[] { 1.5f, 2f, -30f }, result.getFloats(spec.key("numbers")), 0f);
+    assertEquals(-30f, result.getFloat(spec.key("numbers")), 0f);
+    assertEquals(7, result.getInt(spec.key("--count")));
+    assertArrayEquals(new int[] { 7 }, result.getInts(spec.key("--count")));
+    assertTrue(result.getBoolean(spec.key("--add")));
+  }
+
+  @Test
+  public void testTypedDefaults() {
+    NamedArgument count = new NamedArgument("--count", "2");
+    count.setType("int");
+    parser.setArgument(count);
+    ParserSpec spec = parser.compile();
+    ParseResult result = spec.parse(new String[] { "7", "5", "2" });
+    assertEquals(2, result.getInt(spec.key("--count")));
+    assertArrayEquals(new int[] { 2 }, result.getInts(spec.key("--count")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypedGetterRejectsOtherType() {
+    ParserSpec spec = parser.compile();
+    spec.parse(new String[] { "7", "5", "2" }).getInt(spec.key("--type"));
+  }
+
+  @Test
+  public void testLongAndDoubleTypes() {
+    NamedArgument big = new NamedArgument("--big", "0");
+    big.setType("long");
+    parser.setArgument(big);
+    NamedArgument ratio = new NamedArgument("--ratio", "0.5");
+    ratio.setType("double");
+    parser.setArgument(ratio);
+    ParserSpec spec = parser.compile();
+    ParseResult result = spec.parse(new String[] { "7", "5", "2", "--big", "-9223372036854775808" });
+    assertEquals(Long.MIN_VALUE, result.getLong(spec.key("--big")));
+    assertEquals(0.5, result.getDouble(spec.key("--ratio")), 0.0);
+    assertEquals(Long.valueOf(Long.MIN_VALUE), result.get(spec.key("--big", Long.class)));
+    assertEquals(Double.valueOf(0.5), result.get(spec.key("--ratio", Double.class)));
+  }
+
+  @Test
+  public void testBuiltInConvertersMatchJdk() {
+    String[] ints = { "0", "-0", "+12", "2147483647", "-2147483648", "2147483648", "", "-", "+", "1_0", "0x10", " 1" };
+    for (String value : ints) {
+      Integer expected;
+      try {
+        expected = Integer.valueOf(value);
+      } catch (NumberFormatException e) {
+        expected = null;
+      }
+      assertEquals(value, expected, BuiltInConverter.INT.convert(value));
+    }
+    String[] floats = { "1", "1.", ".5", "-3e1", "1e", "e1", ".", "abc", "NaN", "-Infinity", " 2.5f ", "0x1p3",
+        "0x1.8P-1d", "0x1", "1e+", "1.5e-3D", "1f1" };
+    for (String value : floats) {
+      Double expected;
+      try {
+        expected = Double.valueOf(value);
+      } catch (NumberFormatException e) {
+        expected = null;
+      }
+      assertEquals(value, expected, BuiltInConverter.DOUBLE.convert(value));
+    }
+  }
+
+  @Test
+  public void testInvalidFloatMessage() {
+    parser.setArgumentType("width", "float");
+    try {
+      parser.compile().parse(new String[] { "7", "1e", "2" });
+      fail("expected InvalidTypeException");
+    } catch (InvalidTypeException e) {
+      assertEquals("usage: java VolumeCalculator length width height\nVolumeCalculator.java: error: argument width: invalid float value: 1e", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testRegisteredType() {
+    parser.registerType("even", new TypeConverter<Integer>() {
+      public Class<Integer> getValueType() {
+        return Integer.class;
+      }
+
+      public Integer convert(String value) {
+        Integer number = BuiltInConverter.INT.convert(value);
+        return number != null && number % 2 == 0 ? number : null;
+      }
+    });
+    parser.setArgumentType("length", "even");
+    ParserSpec spec = parser.compile();
+    ArgumentKey<Integer> length = spec.key("length", Integer.class);
+    assertEquals(Integer.valueOf(8), spec.parse(new String[] { "8", "5", "2" }).get(length));
+    assertEquals("8", spec.parse(new String[] { "8", "5", "2" }).get(spec.key("length")));
+    try {
+      spec.parse(new String[] { "7", "5", "2" });
+      fail("expected InvalidTypeException");
+    } catch (InvalidTypeException e) {
+      assertTrue(e.getMessage().endsWith("argument length: invalid even value: 7"));
+    }
+  }
+
+  @Test
+  public void testRegisteringReplacesBuiltInType() {
+    parser.registerType("int", new TypeConverter<String>() {
+      public Class<String> getValueType() {
+        return String.class;
+      }
+
+      public String convert(String value) {
+        return value.toUpperCase();
+      }
+    });
+    parser.setArgumentType("length", "int");
+    ParserSpec spec = parser.compile();
+    assertEquals("seven", spec.parse(new String[] { "seven", "5", "2" }).getValue("length"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testKeyRejectsWrongValueType() {
+    parser.setArgumentType("length", "int");
+    parser.compile().key("length", Float.class);
+  }
+
+  @Test
+  public void testMutexAcrossManyOptions() {
+    for (int i = 0; i < 200; i++) {
+      NamedArgument option = new NamedArgument("--option" + i, "");
+      option.addMutuallyExclusiveArg("--option" + (i < 100 ? i + 100 : i - 100));
+      parser.setArgument(option);
+    }
+    ParserSpec spec = parser.compile();
+    ParseResult result = spec.parse(new String[] { "7", "5", "2", "--option3=a", "--option150=b" });
+    assertEquals("b", result.getValue("--option150"));
+    try {
+      spec.parse(new String[] { "7", "5", "2", "--option3=a", "--option150=b", "--option103=c" });
+      fail("expected MutuallyExclusiveArgumentException");
+    } catch (MutuallyExclusiveArgumentException e) {
+      assertTrue(e.getMessage().endsWith("mutually exclusive: --option103 and --option3"));
+    }
+  }
+
+  @Test
+  public void testMutexReportsEarliestConflict() {
+    NamedArgument first = new NamedArgument("--first", "");
+    NamedArgument second = new NamedArgument("--second", "");
+    NamedArgument third = new NamedArgument("--third", "");
+    third.addMutuallyExclusiveArg(first);
+    third.addMutuallyExclusiveArg(second);
+    first.addMutuallyExclusiveArg(third);
+    second.addMutuallyExclusiveArg(third);
+    parser.setArgument(first);
+    parser.setArgument(second);
+    parser.setArgument(third);
+    try {
+      parser.compile().parse(new String[] { "7", "5", "2", "--second=b", "--first=a", "--third=c" });
+      fail("expected MutuallyExclusiveArgumentException");
+    } catch (MutuallyExclusiveArgumentException e) {
+      assertTrue(e.getMessage().endsWith("mutually exclusive: --third and --second"));
+    }
+  }
+
+  @Test
+  public void testRequiredBeyondFirstWord() {
+    for (int i = 0; i < 100; i++) {
+      parser.setArgument(new NamedArgument("--option" + i, "x"));
+    }
+    parser.setArgument(new NamedArgument("--late"));
+    ParserSpec spec = parser.compile();
+    assertEquals("1", spec.parse(new String[] { "7", "5", "2", "--late", "1" }).getValue("--late"));
+    try {
+      spec.parse(new String[] { "7", "5", "2" });
+      fail("expected MissingRequiredArgumentException");
+    } catch (MissingRequiredArgumentException e) {
+      assertTrue(e.getMessage().endsWith("the following arguments are required: --late"));
+    }
+  }
+
+  @Test
+  public void testRequiresConstraint() {
+    parser.setArgument(new NamedArgument("--output", "out.txt"));
+    parser.setArgument(new NamedArgument("--format", "text"));
+    parser.addConstraint(Constraint.requires("--output", "--format"));
+    ParserSpec spec = parser.compile();
+    spec.parse(new String[] { "7", "5", "2" });
+    spec.parse(new String[] { "7", "5", "2", "--format", "csv" });
+    spec.parse(new String[] { "7", "5", "2", "--output", "a.txt", "--format", "csv" });
+    try {
+      spec.parse(new String[] { "7", "5", "2", "--output", "a.txt" });
+      fail("expected MissingRequiredArgumentException");
+    } catch (MissingRequiredArgumentException e) {
+      assertTrue(e.getMessage().endsWith("error: argument --output requires --format"));
+    }
+  }
+
+  @Test
+  public void testGroupConstraints() {
+    String[] names = { "--json", "--xml", "--fast", "--small", "--safe" };
+    for (String name : names) {
+      NamedArgument flag = new NamedArgument(name, "false");
+      flag.setType("boolean");
+      parser.setArgument(flag);
+    }
+    parser.addConstraint(Constraint.oneOf("--json", "--xml"));
+    parser.addConstraint(Constraint.atMost(2, "--fast", "--small", "--safe"));
+    ParserSpec spec = parser.compile();
+    spec.parse(new String[] { "7", "5", "2", "--json", "--fast", "--safe" });
+    try {
+      spec.parse(new String[] { "7", "5", "2" });
+      fail("expected MissingRequiredArgumentException");
+    } catch (MissingRequiredArgumentException e) {
+      assertTrue(e.getMessage().endsWith("error: one of the following arguments is required: --json, --xml"));
+    }
+    try {
+      spec.parse(new String[] { "7", "5", "2", "--json", "--xml" });
+      fail("expected MutuallyExclusiveArgumentException");
+    } catch (MutuallyExclusiveArgumentException e) {
+      assertTrue(e.getMessage().endsWith("error: at most 1 of the following arguments may be given: --json, --xml"));
+    }
+    try {
+      spec.parse(new String[] { "7", "5", "2", "--xml", "--fast", "--small", "--safe" });
+      fail("expected MutuallyExclusiveArgumentException");
+    } catch (MutuallyExclusiveArgumentException e) {
+      assertTrue(e.getMessage().endsWith("at most 2 of the following arguments may be given: --fast, --small, --safe"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstraintOnUnknownArgument() {
+    parser.addConstraint(Constraint.atLeastOne("--missing"));
+    parser.compile();
+  }
+
+  @Test
+  public void testConstraintsFromXML() {
+    ArgumentParser xmlParser = new ArgumentParser("Exporter");
+    xmlParser.parseXML(new java.io.File("src/test/resources/testConstraintsXML.xml").getAbsolutePath());
+    assertEquals(3, xmlParser.getConstraints().size());
+    ParserSpec spec = xmlParser.compile();
+    assertEquals("a.txt", spec.parse(new String[] { "in", "--xml", "--output", "a.txt", "--format", "csv" })
+        .getValue("--output"));
+    try {
+      spec.parse(new String[] { "in", "--xml", "--output", "a.txt" });
+      fail("expected MissingRequiredArgumentException");
+    } catch (MissingRequiredArgumentException e) {
+      assertTrue(e.getMessage().endsWith("argument --output requires --format"));
+    }
+    try {
+      spec.parse(new String[] { "in", "--json", "--fast", "--small", "--safe" });
+      fail("expected MutuallyExclusiveArgumentException");
+    } catch (MutuallyExclusiveArgumentException e) {
+      assertTrue(e.getMessage().endsWith("--fast, --small, --safe"));
+    }
+  }
+
+  @Test
+  public void testLightweightXMLMatchesStAX() throws IOException {
+    String[] files = { "testXMLParser.xml", "testConstraintsXML.xml", "testMultipleValues.xml",
+        "testRequiredMutexXML.xml" };
+    for (String file : files) {
+      Path path = Paths.get("src/test/resources", file);
+      assertTrue(file, DefinitionReader.read(ByteBuffer.wrap(Files.readAllBytes(path))) != null);
+      ArgumentParser stax = new ArgumentParser("Demo");
+      stax.parseXML(path.toString());
+      ArgumentParser lightweight = new ArgumentParser("Demo");
+      lightweight.setLightweightXML(true);
+      lightweight.parseXML(path.toString());
+      assertEquals(file, stax.createXML(false), lightweight.createXML(false));
+      assertEquals(file, stax.getConstraints().toString(), lightweight.getConstraints().toString());
+    }
+
+    String xml = "<?xml version=\"1.0\"?><arguments><named><name>mode</name><default>a &amp; b</default>"
+        + "<type>string</type><!-- note --></named></arguments>";
+    assertNull(DefinitionReader.read(ByteBuffer.wrap(xml.getBytes(StandardCharsets.UTF_8))));
+    Path fallback = writeManifest(xml);
+    ArgumentParser stax = new ArgumentParser("Demo");
+    stax.parseXML(fallback.toString());
+    ArgumentParser lightweight = new ArgumentParser("Demo");
+    lightweight.setLightweightXML(true);
+    lightweight.parseXML(fallback.toString());
+    assertEquals("a & b", stax.compile().parse(new String[0]).getValue("--mode"));
+    assertEquals("a & b", lightweight.compile().parse(new String[0]).getValue("--mode"));
+  }
+
+  @Test
+  public void testXMLSources() throws IOException {
+    Path path = Paths.get("src/test/resources/testXMLParser.xml");
+    ArgumentParser fromName = new ArgumentParser("Demo");
+    fromName.parseXML(path.toString());
+    String expected = fromName.createXML(false);
+
+    ArgumentParser fromPath = new ArgumentParser("Demo");
+    fromPath.parseXML(path);
+    assertEquals(expected, fromPath.createXML(false));
+    for (boolean lightweight : new boolean[] { false, true }) {
+      ArgumentParser fromStream = new ArgumentParser("Demo");
+      fromStream.setLightweightXML(lightweight);
+      try (InputStream in = Files.newInputStream(path)) {
+        fromStream.parseXML(in);
+      }
+      assertEquals(expected, fromStream.createXML(false));
+    }
+    ArgumentParser fromReader = new ArgumentParser("Demo");
+    fromReader.parseXML(new StringReader(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)));
+    assertEquals(expected, fromReader.createXML(false));
+    ArgumentParser fromResource = new ArgumentParser("Demo");
+    fromResource.parseXMLResource("testXMLParser.xml");
+    assertEquals(expected, fromResource.createXML(false));
+  }
+
+  @Test
+  public void testMalformedUTF8InXML() {
+    byte[] xml = ("<arguments><named><name>mode</name><type>string</type>"
+        + "<default>a\u0001b</default></named></arguments>")
+        .getBytes(StandardCharsets.US_ASCII);
+    for (int i = 0; i < xml.length; i++) {
+      if (xml[i] == 1) {
+        xml[i] = (byte) 0xFF;
+      }
+    }
+    for (boolean lightweight : new boolean[] { false, true }) {
+      ArgumentParser parser = new ArgumentParser("Demo");
+      parser.setLightweightXML(lightweight);
+      try {
+        parser.parseXML(new ByteArrayInputStream(xml));
+        fail("lightweight=" + lightweight);
+      } catch (BadXMLException e) {
+      }
+    }
+  }
+
+  @Test(expected = BadXMLException.class)
+  public void testMissingXMLResource() {
+    new ArgumentParser("Demo").parseXMLResource("missing.xml");
+  }
+
+  @Test
+  public void testCachedXMLDefinitions() throws IOException {
+    Path cache = Files.createTempDirectory("specs");
+    Path xml = cache.resolve("exporter.xml");
+    Files.copy(Paths.get("src/test/resources/testConstraintsXML.xml"), xml);
+    ArgumentParser fromXML = new ArgumentParser("Exporter");
+    fromXML.parseXML(xml.toString(), cache);
+    assertEquals(2, Files.list(cache).count());
+
+    ArgumentParser fromCache = new ArgumentParser("Exporter");
+    fromCache.parseXML(xml.toString(), cache);
+    assertEquals(fromXML.createXML(false), fromCache.createXML(false));
+    assertEquals(3, fromCache.getConstraints().size());
+    ParserSpec spec = fromCache.compile();
+    assertEquals("out.txt", spec.parse(new String[] { "in", "--json" }).getValue("--output"));
+    try {
+      spec.parse(new String[] { "in", "--json", "--output", "a.txt" });
+      fail("expected MissingRequiredArgumentException");
+    } catch (MissingRequiredArgumentException e) {
+      assertTrue(e.getMessage().endsWith("argument --output requires --format"));
+    }
+
+    String text = new String(Files.readAllBytes(xml), StandardCharsets.UTF_8);
+    Files.write(xml, text.replace("out.txt", "new.txt").getBytes(StandardCharsets.UTF_8));
+    ArgumentParser changed = new ArgumentParser("Exporter");
+    changed.parseXML(xml.toString(), cache);
+    assertEquals("new.txt", changed.compile().parse(new String[] { "in", "--json" }).getValue("--output"));
+    assertEquals(2, Files.list(cache).count());
+  }
+
+  @Test
+  public void testWriteXMLMatchesCreatedFile() throws IOException {
+    ArgumentParser exporter = new ArgumentParser("Exporter");
+    exporter.parseXML("src/test/resources/testRequiredMutexXML.xml");
+    NamedArgument notes = new NamedArgument("--notes", "a\r\nb <c> & \"d\"");
+    notes.setType("string");
+    exporter.setArgument(notes);
+    String compact = exporter.createXML(true, true);
+    Path created = Paths.get("stripped_tmp.xml");
+    String expected;
+    try {
+      expected = new String(Files.readAllBytes(created), StandardCharsets.UTF_8);
+    } finally {
+      Files.delete(created);
+    }
+
+    Path directory = Files.createTempDirectory("export");
+    Path file = directory.resolve("exporter.xml");
+    exporter.writeXML(file);
+    assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    assertEquals(1, Files.list(directory).count());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    exporter.writeXML(out);
+    assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+    ArgumentParser reread = new ArgumentParser("Exporter");
+    reread.parseXML(file);
+    assertEquals(compact, reread.createXML(false));
+    assertEquals("a\r\nb <c> & \"d\"", reread.compile().parse(new String[] { "7", "3", "2", "--required", "x" })
+        .getValue("--notes"));
+    Files.delete(file);
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testConcurrentExports() throws Exception {
+    final Path directory = Files.createTempDirectory("exports");
+    final Path shared = directory.resolve("shared.xml");
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    List<Future<String>> exports = new ArrayList<Future<String>>();
+    try {
+      for (int i = 0; i < 200; i++) {
+        final int tool = i;
+        exports.add(pool.submit(new Callable<String>() {
+          public String call() {
+            ArgumentParser exporter = new ArgumentParser("Tool" + tool);
+            exporter.parseXML("src/test/resources/testRequiredMutexXML.xml");
+            exporter.setArgument(new NamedArgument("--tool", Integer.toString(tool)));
+            exporter.writeXML(directory.resolve("tool" + tool + ".xml"));
+            exporter.writeXML(shared);
+            return exporter.createXML(false);
+          }
+        }));
+      }
+      Set<String> documents = new HashSet<String>();
+      for (Future<String> export : exports) {
+        documents.add(export.get());
+      }
+      for (int i = 0; i < exports.size(); i++) {
+        ArgumentParser reread = new ArgumentParser("Tool" + i);
+        reread.parseXML(directory.resolve("tool" + i + ".xml"));
+        assertEquals(exports.get(i).get(), reread.createXML(false));
+      }
+      ArgumentParser reread = new ArgumentParser("Shared");
+      reread.parseXML(shared);
+      assertTrue(documents.contains(reread.createXML(false)));
+      ArgumentParser lightweight = new ArgumentParser("Tool0");
+      lightweight.setLightweightXML(true);
+      lightweight.parseXML(directory.resolve("tool0.xml").toString());
+      assertEquals(exports.get(0).get(), lightweight.createXML(false));
+      assertEquals(201, countFiles(directory));
+
+      Set<Path> before = timestampedFiles();
+      List<Future<String>> created = new ArrayList<Future<String>>();
+      for (int i = 0; i < 20; i++) {
+        created.add(pool.submit(new Callable<String>() {
+          public String call() {
+            ArgumentParser exporter = new ArgumentParser("Exporter");
+            exporter.parseXML("src/test/resources/testXMLParser.xml");
+            return exporter.createXML(true);
+          }
+        }));
+      }
+      for (Future<String> export : created) {
+        export.get();
+      }
+      Set<Path> after = timestampedFiles();
+      after.removeAll(before);
+      try {
+        assertEquals(20, after.size());
+        for (Path file : after) {
+          ArgumentParser fromFile = new ArgumentParser("Exporter");
+          fromFile.parseXML(file);
+          assertEquals(created.get(0).get(), fromFile.createXML(false));
+        }
+      } finally {
+        for (Path file : after) {
+          Files.delete(file);
+        }
+      }
+    } finally {
+      pool.shutdown();
+      deleteTree(directory);
+    }
+  }
+
+  @Test
+  public void testExceptionCarriesStructuredFields() {
+    parser.setArgumentType("width", "float");
+    try {
+      parser.compile().parse(new String[] { "7", "wide", "2" });
+      fail("expected InvalidTypeException");
+    } catch (InvalidTypeException e) {
+      assertEquals(ErrorCode.INVALID_TYPE, e.getErrorCode());
+      assertEquals("width", e.getArgumentName());
+      assertEquals("wide", e.getValue());
+      assertEquals(1, e.getTokenIndex());
+      assertEquals("argument width: invalid float value: wide", e.getDiagnostic().getDescription());
+      assertEquals("usage: java VolumeCalculator length width height\n"
+          + "VolumeCalculator.java: error: argument width: invalid float value: wide", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTokenIndexOfOptionValue() {
+    NamedArgument count = new NamedArgument("--count", "1");
+    count.setType("int");
+    count.addAcceptedValues(new String[] { "1", "2" });
+    parser.setArgument(count);
+    try {
+      parser.compile().parse(new String[] { "7", "--count", "3", "5", "2" });
+      fail("expected UnacceptedValueException");
+    } catch (UnacceptedValueException e) {
+      assertEquals(ErrorCode.UNACCEPTED_VALUE, e.getErrorCode());
+      assertEquals(2, e.getTokenIndex());
+    }
+  }
+
+  @Test
+  public void testStacklessExceptions() {
+    parser.setCaptureStackTraces(false);
+    try {
+      parser.compile().parse(new String[] { "7", "5", "2", "extra" });
+      fail("expected UnrecognizedArgumentException");
+    } catch (UnrecognizedArgumentException e) {
+      assertEquals(0, e.getStackTrace().length);
+      assertEquals(ErrorCode.UNRECOGNIZED_ARGUMENT, e.getErrorCode());
+      assertEquals(3, e.getTokenIndex());
+      assertTrue(e.getMessage().endsWith("error: unrecognized arguments: extra"));
+    }
+  }
+
+  @Test
+  public void testMessageOnlyException() {
+    ArgumentException e = new InvalidTypeException("bad");
+    assertEquals("bad", e.getMessage());
+    assertEquals(ErrorCode.UNSPECIFIED, e.getErrorCode());
+    assertEquals(-1, e.getTokenIndex());
+    assertNull(e.getDiagnostic());
+  }
+
+  @Test
+  public void testTryParseValid() {
+    ParseResult result = parser.compile().tryParse(new String[] { "7", "5", "2", "--type", "cone" });
+    assertTrue(result.isValid());
+    assertTrue(result.getDiagnostics().isEmpty());
+    assertEquals("cone", result.getValue("--type"));
+  }
+
+  @Test
+  public void testTryParseReportsFirstProblem() {
+    parser.setArgumentType("width", "int");
+    ParserSpec spec = parser.compile();
+    ParseResult result = spec.tryParse(new String[] { "7", "five", "2", "extra" });
+    assertFalse(result.isValid());
+    assertEquals(1, result.getDiagnostics().size());
+    Diagnostic diagnostic = result.getDiagnostics().get(0);
+    assertEquals(ErrorCode.INVALID_TYPE, diagnostic.getCode());
+    assertEquals("width", diagnostic.getArgumentName());
+    assertEquals(1, diagnostic.getTokenIndex());
+    try {
+      spec.parse(new String[] { "7", "five", "2", "extra" });
+      fail("expected InvalidTypeException");
+    } catch (InvalidTypeException e) {
+      assertEquals(diagnostic.getMessage(), e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTryParseMissingAndHelp() {
+    ParserSpec spec = parser.compile();
+    Diagnostic missing = spec.tryParse(new String[] { "7" }).getDiagnostics().get(0);
+    assertEquals(ErrorCode.MISSING_REQUIRED, missing.getCode());
+    assertEquals("width", missing.getArgumentName());
+    Diagnostic help = spec.tryParse(new String[] { "-h" }).getDiagnostics().get(0);
+    assertEquals(ErrorCode.HELP, help.getCode());
+    assertTrue(help.getMessage().startsWith("usage: java VolumeCalculator length width height\n"));
+  }
+
+  @Test
+  public void testTryParseAllCollectsEveryProblem() {
+    parser.setArgumentType("length", "int");
+    parser.setArgumentType("width", "float");
+    NamedArgument first = new NamedArgument("--first", "");
+    NamedArgument second = new NamedArgument("--second", "");
+    first.addMutuallyExclusiveArg(second);
+    second.addMutuallyExclusiveArg(first);
+    parser.setArgument(first);
+    parser.setArgument(second);
+    parser.setArgument(new NamedArgument("--needed"));
+    ParseResult result = parser.compile().tryParseAll(
+        new String[] { "seven", "--first", "a", "wide", "--second", "b" });
+    assertFalse(result.isValid());
+    List<Diagnostic> diagnostics = result.getDiagnostics();
+    assertEquals(5, diagnostics.size());
+    assertEquals(ErrorCode.INVALID_TYPE, diagnostics.get(0).getCode());
+    assertEquals("length", diagnostics.get(0).getArgumentName());
+    assertEquals(ErrorCode.INVALID_TYPE, diagnostics.get(1).getCode());
+    assertEquals(3, diagnostics.get(1).getTokenIndex());
+    assertEquals("height", diagnostics.get(2).getArgumentName());
+    assertEquals("--needed", diagnostics.get(3).getArgumentName());
+    assertEquals(ErrorCode.MUTUALLY_EXCLUSIVE, diagnostics.get(4).getCode());
+    assertEquals("the following arguments are mutually exclusive: --second and --first",
+        diagnostics.get(4).getDescription());
+  }
+
+  @Test
+  public void testTryParseAllMatchesFirstError() {
+    parser.setArgumentType("width", "int");
+    ParserSpec spec = parser.compile();
+    String[] values = { "7", "x", "2", "extra", "-q", "-zt", "box" };
+    List<Diagnostic> all = spec.tryParseAll(values).getDiagnostics();
+    assertEquals(3, all.size());
+    assertEquals(spec.tryParse(values).getDiagnostics().get(0).getMessage(), all.get(0).getMessage());
+    assertEquals(ErrorCode.UNRECOGNIZED_ARGUMENT, all.get(1).getCode());
+    assertEquals("-z", all.get(2).getValue());
+    assertTrue(spec.tryParseAll(new String[] { "7", "5", "2", "-t", "box" }).isValid());
+  }
+
+  @Test
+  public void testValidateArgumentValues() {
+    List<Diagnostic> diagnostics = parser.validateArgumentValues(new String[] { "-t" });
+    assertEquals(4, diagnostics.size());
+    assertEquals(ErrorCode.NOT_ENOUGH_VALUES, diagnostics.get(0).getCode());
+    assertEquals("width", diagnostics.get(2).getArgumentName());
+  }
+
+  @Test
+  public void testBatchParseKeepsInputOrder() {
+    parser.setArgumentType("length", "int");
+    ParserSpec spec = parser.compile();
+    List<String[]> lines = new ArrayList<String[]>();
+    for (int i = 0; i < 10000; i++) {
+      lines.add(new String[] { i % 7 == 0 ? "bad" + i : Integer.toString(i), "5", "2" });
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      BatchParser batch = new BatchParser(spec, pool, 1000, false);
+      final long[] next = { 0 };
+      final int[] invalid = { 0 };
+      long count = batch.parse(lines.stream(), new BatchParser.ResultSink() {
+        public void accept(long index, String[] values, ParseResult result) {
+          assertEquals(next[0]++, index);
+          if (result.isValid()) {
+            assertEquals(values[0], result.getValue("length"));
+          } else {
+            assertEquals(values[0], result.getDiagnostics().get(0).getValue());
+            invalid[0]++;
+          }
+        }
+      });
+      assertEquals(10000, count);
+      assertEquals(1429, invalid[0]);
+      List<ParseResult> results = batch.parseAll(lines.iterator());
+      assertEquals(10000, results.size());
+      assertEquals("9999", results.get(9999).getValue("length"));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testBatchParseEmptyInput() {
+    BatchParser batch = new BatchParser(parser.compile());
+    assertTrue(batch.parseAll(Collections.<String[]>emptyIterator()).isEmpty());
+  }
+
+  private static long countFiles(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  private static void deleteTree(Path directory) throws IOException {
+    List<Path> paths = new ArrayList<Path>();
+    try (Stream<Path> walk = Files.walk(directory)) {
+      walk.forEach(paths::add);
+    }
+    Collections.reverse(paths);
+    for (Path path : paths) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  private static Set<Path> timestampedFiles() throws IOException {
+    Set<Path> files = new HashSet<Path>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("."), "xml-*.xml")) {
+      for (Path file : stream) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  private static Path writeManifest(String text) throws IOException {
+    Path file = Files.createTempFile("manifest", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  @Test
+  public void testManifestQuoting() throws IOException {
+    Path file = writeManifest("# comment\n7 5 2\n\n  'a b' \"c \\\"d\\\"\" e\\ f ''\r\n"
+        + "one \\\ntwo \"multi\nline\"\nlast -t \u00e9t\u00e9");
+    try (ManifestReader reader = new ManifestReader(file, 8)) {
+      assertArrayEquals(new String[] { "7", "5", "2" }, reader.next());
+      assertEquals(2, reader.getLineNumber());
+      assertArrayEquals(new String[] { "a b", "c \"d\"", "e f", "" }, reader.next());
+      assertEquals(4, reader.getLineNumber());
+      assertArrayEquals(new String[] { "one", "two", "multi\nline" }, reader.next());
+      assertArrayEquals(new String[] { "last", "-t", "\u00e9t\u00e9" }, reader.next());
+      assertEquals(8, reader.getLineNumber());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testManifestContinuationWithCRLF() throws IOException {
+    Path file = writeManifest("7 5 \\\r\n2 --type \"big \\\r\nbox\"\r\nnext\r\n");
+    try (ManifestReader reader = new ManifestReader(file, 4)) {
+      assertArrayEquals(new String[] { "7", "5", "2", "--type", "big box" }, reader.next());
+      assertEquals(1, reader.getLineNumber());
+      assertArrayEquals(new String[] { "next" }, reader.next());
+      assertEquals(4, reader.getLineNumber());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testBatchParseManifestPassesOnSinkExceptions() throws IOException {
+    final UncheckedIOException thrown = new UncheckedIOException(new IOException("sink failed"));
+    try {
+      new BatchParser(parser.compile()).parse(writeManifest("7 5 2\n"), new BatchParser.ResultSink() {
+        public void accept(long index, String[] values, ParseResult result) {
+          throw thrown;
+        }
+      });
+      fail("expected UncheckedIOException");
+    } catch (UncheckedIOException e) {
+      assertTrue(e == thrown);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testManifestUnterminatedQuote() throws IOException {
+    try (ManifestReader reader = new ManifestReader(writeManifest("7 '5 2\n"))) {
+      reader.next();
+    }
+  }
+
+  @Test
+  public void testManifestClosed() throws IOException {
+    ManifestReader reader = new ManifestReader(writeManifest("7 5 2\n8 5 2\n"));
+    assertArrayEquals(new String[] { "7", "5", "2" }, reader.next());
+    reader.close();
+    try {
+      reader.hasNext();
+      fail();
+    } catch (IllegalStateException e) {
+    }
+    try {
+      reader.next();
+      fail();
+    } catch (IllegalStateException e) {
+    }
+  }
+
+  @Test
+  public void testBatchParseManifest() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      text.append(i).append(" 5 2 --type ").append(i % 2 == 0 ? "box" : "'big box'").append('\n');
+    }
+    text.append("1 2\n");
+    final List<String> types = new ArrayList<String>();
+    long count = new BatchParser(parser.compile()).parse(writeManifest(text.toString()),
+        new BatchParser.ResultSink() {
+          public void accept(long index, String[] values, ParseResult result) {
+            types.add(result.isValid() ? result.getValue("--type") : result.getDiagnostics().get(0).getArgumentName());
+          }
+        });
+    assertEquals(501, count);
+    assertEquals("big box", types.get(499));
+    assertEquals("height", types.get(500));
+  }
+
+  @Test
+  public void testResponseFileExpansion() throws IOException {
+    Path inner = writeManifest("--type 'big box'\n");
+    Path outer = writeManifest("# dimensions\n7 5\n@" + inner + "\n");
+    parser.setResponseFileDepth(2);
+    parser.setArgumentValues(new String[] { "@" + outer, "2" });
+    assertEquals("7", parser.getValue("length"));
+    assertEquals("2", parser.getValue("height"));
+    assertEquals("big box", parser.getValue("--type"));
+  }
+
+  @Test
+  public void testResponseFileContinuationWithCRLF() throws IOException {
+    Path file = writeManifest("7 \\\r\n5\r\n--type \"big \\\r\nbox\"\r\n2\r\n");
+    parser.setResponseFileDepth(1);
+    parser.setArgumentValues(new String[] { "@" + file });
+    assertEquals("7", parser.getValue("length"));
+    assertEquals("5", parser.getValue("width"));
+    assertEquals("2", parser.getValue("height"));
+    assertEquals("big box", parser.getValue("--type"));
+  }
+
+  @Test
+  public void testResponseFilesOffByDefault() {
+    ParseResult result = parser.compile().tryParse(new String[] { "7", "5", "@2" });
+    assertTrue(result.isValid());
+    assertEquals("@2", result.getValue("height"));
+  }
+
+  @Test
+  public void testResponseFileErrors() throws IOException {
+    Path cycle = Files.createTempFile("cycle", ".txt");
+    cycle.toFile().deleteOnExit();
+    Files.write(cycle, ("7 @" + cycle).getBytes(StandardCharsets.UTF_8));
+    parser.setResponseFileDepth(4);
+    ParserSpec spec = parser.compile();
+    Diagnostic diagnostic = spec.tryParse(new String[] { "-t", "box", "@" + cycle }).getDiagnostics().get(0);
+    assertEquals(ErrorCode.RESPONSE_FILE, diagnostic.getCode());
+    assertEquals("@" + cycle, diagnostic.getValue());
+    assertEquals(2, diagnostic.getTokenIndex());
+    diagnostic = spec.tryParse(new String[] { "@" + cycle + ".missing" }).getDiagnostics().get(0);
+    assertEquals(ErrorCode.RESPONSE_FILE, diagnostic.getCode());
+
+    Path deep = writeManifest("2");
+    for (int i = 0; i < 4; i++) {
+      deep = writeManifest("@" + deep);
+    }
+    assertEquals(ErrorCode.RESPONSE_FILE,
+        spec.tryParse(new String[] { "7", "5", "@" + deep }).getDiagnostics().get(0).getCode());
+    parser.setResponseFileDepth(5);
+    assertEquals("2", parser.compile().parse(new String[] { "7", "5", "@" + deep }).getValue("height"));
+  }
+
+  @Test(expected = UnrecognizedArgumentException.class)
+  public void testResponseFileUnterminatedQuote() throws IOException {
+    parser.setResponseFileDepth(1);
+    parser.compile().parse(new String[] { "7", "5", "@" + writeManifest("'2") });
+  }
+
+  @Test
+  public void testStreamedValues() {
+    ArgumentParser typed = new ArgumentParser("SumNumbers");
+    Argument numbers = new Argument("numbers");
+    numbers.setType("float");
+    numbers.setNumberOfValuesExpected(100000);
+    typed.setArgument(numbers);
+    NamedArgument count = new NamedArgument("--count", "2");
+    count.setType("int");
+    typed.setArgument(count);
+    String[] values = new String[100002];
+    for (int i = 0; i < 100000; i++) {
+      values[i] = Integer.toString(i);
+    }
+    values[100000] = "--count";
+    values[100001] = "7";
+    ParserSpec spec = typed.compile();
+    final double[] sum = new double[1];
+    final List<String> counts = new ArrayList<String>();
+    ParseResult result = spec.parse(values, new ValueConsumers().onDouble("numbers", value -> sum[0] += value)
+        .onString("--count", counts::add));
+    assertEquals(4999950000.0, sum[0], 0.0);
+    assertEquals(Collections.singletonList("7"), counts);
+    assertArrayEquals(new float[] { 99999f }, result.getFloats(spec.key("numbers")), 0f);
+    assertEquals(7, result.getInt(spec.key("--count")));
+    assertTrue(result.isPresent("numbers"));
+  }
+
+  @Test
+  public void testStreamedValuesStopAtInvalidValue() {
+    Argument numbers = new Argument("numbers");
+    numbers.setType("int");
+    numbers.setNumberOfValuesExpected(4);
+    ArgumentParser typed = new ArgumentParser("SumNumbers");
+    typed.setArgument(numbers);
+    final List<Integer> received = new ArrayList<Integer>();
+    ParseResult result = typed.compile().tryParse(new String[] { "1", "2", "x", "4" },
+        new ValueConsumers().onInt("numbers", received::add));
+    assertEquals(Arrays.asList(1, 2), received);
+    assertEquals(ErrorCode.INVALID_TYPE, result.getDiagnostics().get(0).getCode());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStreamedValuesWrongType() {
+    parser.compile().tryParse(new String[] { "7", "5", "2" }, new ValueConsumers().onInt("length", value -> { }));
+  }
+
+  @Test
+  public void testSetArgumentValuesStreamed() {
+    final List<String> lengths = new ArrayList<String>();
+    parser.setArgumentValues(new String[] { "7", "5", "2" }, new ValueConsumers().onString("length", lengths::add));
+    assertEquals(Collections.singletonList("7"), lengths);
+    assertEquals("7", parser.getValue("length"));
+  }
+
+  @Test
+  public void testDirectStorage() {
+    ArgumentParser typed = new ArgumentParser("SumNumbers");
+    Argument numbers = new Argument("numbers");
+    numbers.setType("float");
+    numbers.setNumberOfValuesExpected(1000);
+    typed.setArgument(numbers);
+    NamedArgument ids = new NamedArgument("--id", "0");
+    ids.setType("long");
+    typed.setArgument(ids);
+    typed.setDirectStorageThreshold(1);
+    String[] values = new String[1000 + 2 * 5];
+    for (int i = 0; i < 1000; i++) {
+      values[i] = i + ".50";
+    }
+    for (int i = 0; i < 5; i++) {
+      values[1000 + 2 * i] = "--id";
+      values[1001 + 2 * i] = Integer.toString(-i);
+    }
+    ParserSpec spec = typed.compile();
+    ParseResult result = spec.parse(values);
+    FloatBuffer floats = result.getFloatBuffer(spec.key("numbers"));
+    assertEquals(1000, floats.remaining());
+    assertTrue(floats.isReadOnly());
+    assertEquals(999.5f, floats.get(999), 0f);
+    assertEquals(2.5f, result.getFloats(spec.key("numbers"))[2], 0f);
+    assertEquals("999.50", result.getValue("numbers"));
+    assertEquals("3.5", result.getValues("numbers").get(3));
+    assertArrayEquals(new long[] { 0, -1, -2, -3, -4 }, result.getLongs(spec.key("--id")));
+    assertEquals(-3L, result.getLongBuffer(spec.key("--id")).get(3));
+    assertEquals(-4L, (long) result.get(spec.key("--id", Long.class)));
+  }
+
+  @Test
+  public void testBufferViewsOnHeap() {
+    ArgumentParser typed = new ArgumentParser("SumNumbers");
+    Argument numbers = new Argument("numbers");
+    numbers.setType("int");
+    numbers.setNumberOfValuesExpected(3);
+    typed.setArgument(numbers);
+    ParserSpec spec = typed.compile();
+    IntBuffer ints = spec.parse(new String[] { "4", "5", "6" }).getIntBuffer(spec.key("numbers"));
+    assertEquals(3, ints.remaining());
+    assertEquals(6, ints.get(2));
+  }
+
+  @Test
+  public void testVariadicDirectStorage() {
+    ArgumentParser variadic = new ArgumentParser("SumNumbers");
+    Argument numbers = new Argument("numbers");
+    numbers.setType("int");
+    numbers.setNumberOfValuesExpected(Argument.ZERO_OR_MORE);
+    variadic.setArgument(numbers);
+    variadic.setDirectStorageThreshold(4);
+    ParserSpec spec = variadic.compile();
+    IntBuffer few = spec.parse(new String[] { "1", "2", "3" }).getIntBuffer(spec.key("numbers"));
+    assertFalse(few.isDirect());
+    assertEquals(3, few.get(2));
+    String[] values = new String[100];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = Integer.toString(i * 3);
+    }
+    for (int parallel : new int[] { 0, 8 }) {
+      variadic.setParallelThreshold(parallel);
+      spec = variadic.compile();
+      ParseResult result = spec.parse(values);
+      IntBuffer many = result.getIntBuffer(spec.key("numbers"));
+      assertTrue(many.isDirect());
+      assertEquals(100, many.remaining());
+      assertEquals(297, many.get(99));
+      assertEquals("6", result.getValues("numbers").get(2));
+      assertEquals("297", result.getValue("numbers"));
+    }
+  }
+
+  @Test
+  public void testVariadicPositionals() {
+    ArgumentParser variadic = new ArgumentParser("Plot");
+    Argument points = new Argument("points");
+    points.setType("float");
+    points.setNumberOfValuesExpected(Argument.ONE_OR_MORE);
+    variadic.setArgument(points);
+    NamedArgument title = new NamedArgument("--title", "none");
+    variadic.setArgument(title);
+    Argument output = new Argument("output");
+    output.setNumberOfValuesExpected("?");
+    variadic.setArgument(output);
+    ParserSpec spec = variadic.compile();
+    String[] values = new String[1002];
+    for (int i = 0; i < 1000; i++) {
+      values[i] = i % 2 == 0 ? Integer.toString(i) : "-" + i;
+    }
+    values[1000] = "--title";
+    values[1001] = "t";
+    ParseResult result = spec.parse(values);
+    float[] floats = result.getFloats(spec.key("points"));
+    assertEquals(1000, floats.length);
+    assertEquals(-999f, floats[999], 0f);
+    assertFalse(result.isPresent("output"));
+    result = spec.parse(new String[] { "1", "--title", "t", "out.png" });
+    assertEquals("out.png", result.getValue("output"));
+    Diagnostic missing = spec.tryParse(new String[] { "--title", "t" }).getDiagnostics().get(0);
+    assertEquals(ErrorCode.MISSING_REQUIRED, missing.getCode());
+    assertEquals("points", missing.getArgumentName());
+    assertEquals(ErrorCode.INVALID_TYPE, spec.tryParse(new String[] { "1", "a.png" }).getDiagnostics().get(0).getCode());
+    assertEquals("usage: java Plot points [points ...] [output]\nPlot.java: error: unrecognized arguments: b.png",
+        spec.tryParse(new String[] { "1", "-t", "a.png", "b.png" }).getDiagnostics().get(0).getMessage());
+  }
+
+  @Test
+  public void testNegativeFirstValueOfVariadicPositional() {
+    ArgumentParser variadic = new ArgumentParser("Sum");
+    Argument nums = new Argument("nums");
+    nums.setType("int");
+    nums.setNumberOfValuesExpected("*");
+    variadic.setArgument(nums);
+    ParserSpec spec = variadic.compile();
+    assertArrayEquals(new int[] { -1, 2 }, spec.parse(new String[] { "-1", "2" }).getInts(spec.key("nums")));
+    assertArrayEquals(new int[] { -1, -2 }, spec.parse(new String[] { "-1", "-2" }).getInts(spec.key("nums")));
+
+    variadic.setFlags("-1");
+    spec = variadic.compile();
+    ParseResult result = spec.parse(new String[] { "-1", "2" });
+    assertEquals("true", result.getValue("-1"));
+    assertArrayEquals(new int[] { 2 }, result.getInts(spec.key("nums")));
+    result = spec.parse(new String[] { "5", "-1", "-2" });
+    assertEquals("true", result.getValue("-1"));
+    assertArrayEquals(new int[] { 5 }, result.getInts(spec.key("nums")));
+
+    variadic.setParallelThreshold(2);
+    spec = variadic.compile();
+    result = spec.parse(new String[] { "5", "6", "7", "-1", "-2" });
+    assertEquals("true", result.getValue("-1"));
+    assertArrayEquals(new int[] { 5, 6, 7 }, result.getInts(spec.key("nums")));
+  }
+
+  @Test
+  public void testUntypedValuesGrowTheirColumn() {
+    ArgumentParser untyped = new ArgumentParser("Tag");
+    Argument files = new Argument("files");
+    files.setNumberOfValuesExpected("*");
+    untyped.setArgument(files);
+    untyped.setArgument(new NamedArgument("--name", "x"));
+    untyped.setArgumentValues(new String[] { "--name", "a", "--name", "b" });
+    assertEquals(Arrays.asList("x", "a", "b"), untyped.getValues("--name"));
+
+    ParserSpec spec = untyped.compile();
+    ParseResult result = spec.tryParse(new String[] { "a.txt", "b.txt", "c.txt", "--name", "a", "--name", "b" });
+    assertTrue(result.isValid());
+    assertEquals(Arrays.asList("a.txt", "b.txt", "c.txt"), result.getValues("files"));
+    assertEquals(Arrays.asList("a", "b"), result.getValues("--name"));
+    assertTrue(spec.tryParseAll(new String[] { "a.txt", "b.txt", "--name", "a", "--name", "b" }).isValid());
+  }
+
+  @Test
+  public void testVariadicNamed() {
+    NamedArgument ids = new NamedArgument("--ids", "0");
+    ids.setType("int");
+    ids.setNumberOfValuesExpected("*");
+    parser.setArgument(ids);
+    NamedArgument tags = new NamedArgument("--tags", "");
+    tags.setNumberOfValuesExpected(Argument.ONE_OR_MORE);
+    parser.setArgument(tags);
+    ParserSpec spec = parser.compile();
+    ParseResult result = spec.parse(new String[] { "--ids", "1", "2", "-3", "-t", "cone", "7", "5", "2" });
+    assertArrayEquals(new int[] { 1, 2, -3 }, result.getInts(spec.key("--ids")));
+    assertEquals("cone", result.getValue("--type"));
+    result = spec.parse(new String[] { "7", "5", "2", "--ids" });
+    assertTrue(result.isPresent("--ids"));
+    assertEquals(0, result.getValues("--ids").size());
+    Diagnostic diagnostic = spec.tryParse(new String[] { "7", "5", "2", "--tags", "--ids" }).getDiagnostics().get(0);
+    assertEquals(ErrorCode.NOT_ENOUGH_VALUES, diagnostic.getCode());
+    assertEquals("+", tags.getNumberOfValuesExpectedString());
+  }
+
+  private static ArgumentParser numbersParser(int count, int parallelThreshold) {
+    ArgumentParser numbers = new ArgumentParser("SumNumbers");
+    Argument values = new Argument("numbers");
+    values.setType("int");
+    values.setNumberOfValuesExpected(count);
+    numbers.setArgument(values);
+    Argument rest = new Argument("rest");
+    rest.setType("double");
+    rest.setNumberOfValuesExpected(Argument.ZERO_OR_MORE);
+    numbers.setArgument(rest);
+    numbers.setParallelThreshold(parallelThreshold);
+    return numbers;
+  }
+
+  @Test
+  public void testParallelValidationMatchesSequential() {
+    String[] values = new String[30000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = Integer.toString(i);
+    }
+    values[9000] = "x";
+    values[17000] = "9e99";
+    values[25000] = "1.5";
+    values[29999] = "y";
+    ParserSpec sequential = numbersParser(20000, 0).compile();
+    ParserSpec parallel = numbersParser(20000, 100).compile();
+    ParseResult expected = sequential.tryParseAll(values);
+    ParseResult actual = parallel.tryParseAll(values);
+    assertEquals(expected.getDiagnostics().toString(), actual.getDiagnostics().toString());
+    assertEquals(3, actual.getDiagnostics().size());
+    assertEquals(17000, actual.getDiagnostics().get(1).getTokenIndex());
+    assertEquals(29999, actual.getDiagnostics().get(2).getTokenIndex());
+    assertArrayEquals(expected.getInts(sequential.key("numbers")), actual.getInts(parallel.key("numbers")));
+    assertEquals(expected.getValue("numbers"), actual.getValue("numbers"));
+    assertArrayEquals(expected.getDoubles(sequential.key("rest")), actual.getDoubles(parallel.key("rest")), 0.0);
+
+    expected = sequential.tryParse(values);
+    actual = parallel.tryParse(values);
+    Diagnostic first = actual.getDiagnostics().get(0);
+    assertEquals(ErrorCode.INVALID_TYPE, first.getCode());
+    assertEquals("x", first.getValue());
+    assertEquals(9000, first.getTokenIndex());
+    assertArrayEquals(expected.getInts(sequential.key("numbers")), actual.getInts(parallel.key("numbers")));
+    assertEquals("8999", actual.getValue("numbers"));
+
+    values[9000] = "9000";
+    values[17000] = "17000";
+    values[29999] = "29999";
+    ParseResult result = parallel.parse(values);
+    assertEquals(20000, result.getInts(parallel.key("numbers")).length);
+    assertEquals(1.5, result.getDoubles(parallel.key("rest"))[5000], 0.0);
+    assertEquals("29999", result.getValue("rest"));
+  }
+
+  @Test
+  public void testNumberParserMatchesJdk() {
+    Random random = new Random(20);
+    List<String> texts = new ArrayList<String>(Arrays.asList("0", "-0", "+0.0", "1", "-1.5", ".5", "5.", "1e10",
+        "1E-10", "3.4028235e38", "1.4e-45", "9007199254740993", "123456789012345678", "0.1", "0.3f", "2.5D",
+        "4.9e-324", "1e23", "1e400", "-1e-400", " 7 ", "0x1.8p1", "NaN", "-Infinity", "16777217", "0.000001"));
+    for (int i = 0; i < 20000; i++) {
+      StringBuilder text = new StringBuilder();
+      if (random.nextBoolean()) {
+        text.append('-');
+      }
+      text.append(Math.abs(random.nextLong()) % (1L << (1 + random.nextInt(62))));
+      if (random.nextBoolean()) {
+        text.insert(text.length() - random.nextInt(text.length() - (text.charAt(0) == '-' ? 1 : 0)), '.');
+      }
+      if (random.nextInt(3) == 0) {
+        text.append('e').append(random.nextInt(80) - 40);
+      }
+      texts.add(text.toString());
+    }
+    for (String text : texts) {
+      String padded = "[" + text + "]";
+      assertEquals(text, Double.doubleToRawLongBits(Double.parseDouble(text)),
+          Double.doubleToRawLongBits(NumberParser.parseDouble(padded, 1, padded.length() - 1)));
+      assertEquals(text, Float.floatToRawIntBits(Float.parseFloat(text)),
+          Float.floatToRawIntBits(NumberParser.parseFloat(padded, 1, padded.length() - 1)));
+      long expected;
+      try {
+        expected = Integer.parseInt(text);
+      } catch (NumberFormatException e) {
+        expected = NumberParser.INVALID;
+      }
+      assertEquals(text, expected,
+          NumberParser.parseInteger(padded, 1, padded.length() - 1, Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+    assertEquals(NumberParser.INVALID, NumberParser.parseInteger("99999999999999999999", 0, 20, -10, 10));
+    assertEquals(-7L, NumberParser.parseInteger("x-7", 1, 3, -10, 10));
+    assertFalse(NumberParser.isFloatingPoint("1e", 0, 2));
+  }
+}